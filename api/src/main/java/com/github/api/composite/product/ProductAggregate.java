@@ -1,22 +1,34 @@
 package com.github.api.composite.product;
 
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_DEFAULT;
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.util.List;
 
+@JsonInclude(NON_NULL)
 public class ProductAggregate {
   private final int productId;
   private final String name;
   private final int weight;
   private final List<RecommendationSummary> recommendations;
+  private final Integer recommendationsCursor;
   private final List<ReviewSummary> reviews;
+  private final Integer reviewsCursor;
   private final ServiceAddresses serviceAddresses;
+  @JsonInclude(NON_DEFAULT)
+  private final boolean stale;
 
   public ProductAggregate() {
     productId = 0;
     name = null;
     weight = 0;
     recommendations = null;
+    recommendationsCursor = null;
     reviews = null;
+    reviewsCursor = null;
     serviceAddresses = null;
+    stale = false;
   }
 
   public ProductAggregate(
@@ -27,12 +39,45 @@ public class ProductAggregate {
     List<ReviewSummary> reviews,
     ServiceAddresses serviceAddresses) {
 
+    this(productId, name, weight, recommendations, reviews, serviceAddresses, false);
+  }
+
+  public ProductAggregate(
+    int productId,
+    String name,
+    int weight,
+    List<RecommendationSummary> recommendations,
+    List<ReviewSummary> reviews,
+    ServiceAddresses serviceAddresses,
+    boolean stale) {
+
+    this(productId, name, weight, recommendations, null, reviews, null, serviceAddresses, stale);
+  }
+
+  /**
+   * @param recommendationsCursor Value of after for the next page of recommendations, null if there are no more
+   * @param reviewsCursor Value of after for the next page of reviews, null if there are no more
+   */
+  public ProductAggregate(
+    int productId,
+    String name,
+    int weight,
+    List<RecommendationSummary> recommendations,
+    Integer recommendationsCursor,
+    List<ReviewSummary> reviews,
+    Integer reviewsCursor,
+    ServiceAddresses serviceAddresses,
+    boolean stale) {
+
     this.productId = productId;
     this.name = name;
     this.weight = weight;
     this.recommendations = recommendations;
+    this.recommendationsCursor = recommendationsCursor;
     this.reviews = reviews;
+    this.reviewsCursor = reviewsCursor;
     this.serviceAddresses = serviceAddresses;
+    this.stale = stale;
   }
 
   public int getProductId() {
@@ -51,11 +96,23 @@ public class ProductAggregate {
     return recommendations;
   }
 
+  public Integer getRecommendationsCursor() {
+    return recommendationsCursor;
+  }
+
   public List<ReviewSummary> getReviews() {
     return reviews;
   }
 
+  public Integer getReviewsCursor() {
+    return reviewsCursor;
+  }
+
   public ServiceAddresses getServiceAddresses() {
     return serviceAddresses;
   }
+
+  public boolean isStale() {
+    return stale;
+  }
 }
@@ -0,0 +1,90 @@
+package com.github.api.composite.product;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Part of a streamed product aggregate, either the product itself or one of its recommendations or reviews.
+ */
+@JsonInclude(NON_NULL)
+public class ProductAggregatePart {
+
+  public enum Type { PRODUCT, RECOMMENDATION, REVIEW }
+
+  private final Type type;
+  private final int productId;
+  private final String name;
+  private final Integer weight;
+  private final ServiceAddresses serviceAddresses;
+  private final RecommendationSummary recommendation;
+  private final ReviewSummary review;
+
+  public ProductAggregatePart() {
+    type = null;
+    productId = 0;
+    name = null;
+    weight = null;
+    serviceAddresses = null;
+    recommendation = null;
+    review = null;
+  }
+
+  private ProductAggregatePart(
+    Type type,
+    int productId,
+    String name,
+    Integer weight,
+    ServiceAddresses serviceAddresses,
+    RecommendationSummary recommendation,
+    ReviewSummary review) {
+
+    this.type = type;
+    this.productId = productId;
+    this.name = name;
+    this.weight = weight;
+    this.serviceAddresses = serviceAddresses;
+    this.recommendation = recommendation;
+    this.review = review;
+  }
+
+  public static ProductAggregatePart product(int productId, String name, int weight, ServiceAddresses serviceAddresses) {
+    return new ProductAggregatePart(Type.PRODUCT, productId, name, weight, serviceAddresses, null, null);
+  }
+
+  public static ProductAggregatePart recommendation(int productId, RecommendationSummary recommendation) {
+    return new ProductAggregatePart(Type.RECOMMENDATION, productId, null, null, null, recommendation, null);
+  }
+
+  public static ProductAggregatePart review(int productId, ReviewSummary review) {
+    return new ProductAggregatePart(Type.REVIEW, productId, null, null, null, null, review);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public int getProductId() {
+    return productId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public Integer getWeight() {
+    return weight;
+  }
+
+  public ServiceAddresses getServiceAddresses() {
+    return serviceAddresses;
+  }
+
+  public RecommendationSummary getRecommendation() {
+    return recommendation;
+  }
+
+  public ReviewSummary getReview() {
+    return review;
+  }
+}
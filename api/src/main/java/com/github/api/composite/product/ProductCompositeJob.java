@@ -0,0 +1,52 @@
+package com.github.api.composite.product;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_NULL;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Status of the asynchronous creation of a composite product.
+ */
+@JsonInclude(NON_NULL)
+public class ProductCompositeJob {
+
+  public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+  private final String jobId;
+  private final int productId;
+  private final Status status;
+  private final String message;
+
+  public ProductCompositeJob() {
+    jobId = null;
+    productId = 0;
+    status = null;
+    message = null;
+  }
+
+  public ProductCompositeJob(String jobId, int productId, Status status, String message) {
+    this.jobId = jobId;
+    this.productId = productId;
+    this.status = status;
+    this.message = message;
+  }
+
+  public String getJobId() {
+    return jobId;
+  }
+
+  public int getProductId() {
+    return productId;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  /**
+   * @return why the job failed, null unless it failed
+   */
+  public String getMessage() {
+    return message;
+  }
+}
@@ -4,7 +4,11 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @Tag(name = "ProductComposite", description = "REST API for composite product information.")
 public interface ProductCompositeService {
@@ -28,12 +32,62 @@ public interface ProductCompositeService {
   @PostMapping(
     value    = "/product-composite",
     consumes = "application/json")
-  void createProduct(@RequestBody ProductAggregate body);
+  Mono<Void> createProduct(@RequestBody ProductAggregate body);
 
   /**
-   * Sample usage: "curl $HOST:$PORT/product-composite/1".
+   * Sample usage, see below.
+   *
+   * curl -X POST $HOST:$PORT/product-composite/jobs \
+   *   -H "Content-Type: application/json" --data \
+   *   '{"productId":123,"name":"product 123","weight":123}'
+   *
+   * The composite product is validated and queued, the response is sent before the product, recommendations and
+   * reviews are created. Its Location header points to the status of the job.
+   *
+   * @param body A JSON representation of the new composite product
+   * @return the queued job
+   */
+  @Operation(
+    summary = "${api.product-composite.create-composite-product-async.description}",
+    description = "${api.product-composite.create-composite-product-async.notes}")
+  @ApiResponses(value = {
+    @ApiResponse(responseCode = "202", description = "${api.responseCodes.accepted.description}"),
+    @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+    @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}"),
+    @ApiResponse(responseCode = "503", description = "${api.responseCodes.serviceUnavailable.description}")
+  })
+  @PostMapping(
+    value    = "/product-composite/jobs",
+    consumes = "application/json",
+    produces = "application/json")
+  Mono<ResponseEntity<ProductCompositeJob>> createProductAsync(@RequestBody ProductAggregate body);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/product-composite/jobs/0c8d7b5e-2f43-4a7a-9d0b-1f3c55b2e7a1".
+   *
+   * @param jobId Id of the job, as returned when the composite product was posted
+   * @return the status of the job, if it is still kept
+   */
+  @Operation(
+    summary = "${api.product-composite.get-composite-product-job.description}",
+    description = "${api.product-composite.get-composite-product-job.notes}")
+  @ApiResponses(value = {
+    @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+    @ApiResponse(responseCode = "404", description = "${api.responseCodes.notFound.description}")
+  })
+  @GetMapping(
+    value = "/product-composite/jobs/{jobId}",
+    produces = "application/json")
+  Mono<ProductCompositeJob> getProductJob(@PathVariable String jobId);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/product-composite/1?fields=name,weight".
+   *
+   * The response carries an ETag combined from the versions of the product, recommendations and reviews, a request
+   * with a matching If-None-Match header is answered with 304 Not Modified and no body.
    *
    * @param productId Id of the product
+   * @param fields Comma separated fields to return, all fields if not specified
    * @return the composite product info, if found, else null
    */
   @Operation(
@@ -43,12 +97,105 @@ public interface ProductCompositeService {
     @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
     @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
     @ApiResponse(responseCode = "404", description = "${api.responseCodes.notFound.description}"),
-    @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+    @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}"),
+    @ApiResponse(responseCode = "503", description = "${api.responseCodes.serviceUnavailable.description}")
   })
   @GetMapping(
     value = "/product-composite/{productId}",
     produces = "application/json")
-  ProductAggregate getProduct(@PathVariable int productId);
+  Mono<ResponseEntity<ProductAggregate>> getProduct(
+    @PathVariable int productId,
+    @RequestParam(value = "fields", required = false) String fields);
+
+  /**
+   * Sample usage: "curl -H "Accept: application/x-ndjson" $HOST:$PORT/product-composite/1/stream".
+   *
+   * @param productId Id of the product
+   * @return the product followed by its recommendations and reviews, as they arrive
+   */
+  @Operation(
+    summary = "${api.product-composite.get-composite-product-stream.description}",
+    description = "${api.product-composite.get-composite-product-stream.notes}")
+  @ApiResponses(value = {
+    @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+    @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+    @ApiResponse(responseCode = "404", description = "${api.responseCodes.notFound.description}"),
+    @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}"),
+    @ApiResponse(responseCode = "503", description = "${api.responseCodes.serviceUnavailable.description}")
+  })
+  @GetMapping(
+    value = "/product-composite/{productId}/stream",
+    produces = {"application/x-ndjson", "text/event-stream"})
+  Flux<ProductAggregatePart> getProductStream(@PathVariable int productId);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/product-composite/1/recommendations?after=100".
+   *
+   * @param productId Id of the product
+   * @param limit Maximum number of recommendations to return, the page size of the composite product if not specified
+   * @param after Only return recommendations with a higher recommendationId, e.g. the recommendationsCursor of the composite product
+   * @return a page of the recommendations of the product, in recommendationId order
+   */
+  @Operation(
+    summary = "${api.product-composite.get-composite-product-recommendations.description}",
+    description = "${api.product-composite.get-composite-product-recommendations.notes}")
+  @ApiResponses(value = {
+    @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+    @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+    @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}"),
+    @ApiResponse(responseCode = "503", description = "${api.responseCodes.serviceUnavailable.description}")
+  })
+  @GetMapping(
+    value = "/product-composite/{productId}/recommendations",
+    produces = "application/json")
+  Flux<RecommendationSummary> getProductRecommendations(
+    @PathVariable int productId,
+    @RequestParam(value = "limit", required = false) Integer limit,
+    @RequestParam(value = "after", required = false) Integer after);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/product-composite/1/reviews?after=100".
+   *
+   * @param productId Id of the product
+   * @param limit Maximum number of reviews to return, the page size of the composite product if not specified
+   * @param after Only return reviews with a higher reviewId, e.g. the reviewsCursor of the composite product
+   * @return a page of the reviews of the product, in reviewId order
+   */
+  @Operation(
+    summary = "${api.product-composite.get-composite-product-reviews.description}",
+    description = "${api.product-composite.get-composite-product-reviews.notes}")
+  @ApiResponses(value = {
+    @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+    @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+    @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}"),
+    @ApiResponse(responseCode = "503", description = "${api.responseCodes.serviceUnavailable.description}")
+  })
+  @GetMapping(
+    value = "/product-composite/{productId}/reviews",
+    produces = "application/json")
+  Flux<ReviewSummary> getProductReviews(
+    @PathVariable int productId,
+    @RequestParam(value = "limit", required = false) Integer limit,
+    @RequestParam(value = "after", required = false) Integer after);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/product-composite?ids=1,2,3".
+   *
+   * @param productIds Ids of the products
+   * @return the composite product info of the products found, in the order they were requested
+   */
+  @Operation(
+    summary = "${api.product-composite.get-composite-products.description}",
+    description = "${api.product-composite.get-composite-products.notes}")
+  @ApiResponses(value = {
+    @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+    @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+    @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+  })
+  @GetMapping(
+    value = "/product-composite",
+    produces = "application/json")
+  Flux<ProductAggregate> getProducts(@RequestParam(value = "ids", required = true) List<Integer> productIds);
 
   /**
    * Sample usage: "curl -X DELETE $HOST:$PORT/product-composite/1".
@@ -63,5 +210,5 @@ public interface ProductCompositeService {
     @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
   })
   @DeleteMapping(value = "/product-composite/{productId}")
-  void deleteProduct(@PathVariable int productId);
+  Mono<Void> deleteProduct(@PathVariable int productId);
 }
@@ -0,0 +1,60 @@
+package com.github.api.core;
+
+import java.util.List;
+
+/**
+ * Outcome of creating a batch of items, each item that was not created is reported with why.
+ */
+public class BatchResult {
+
+  private final int created;
+  private final List<Failure> failures;
+
+  public BatchResult() {
+    created = 0;
+    failures = null;
+  }
+
+  public BatchResult(int created, List<Failure> failures) {
+    this.created = created;
+    this.failures = failures;
+  }
+
+  public int getCreated() {
+    return created;
+  }
+
+  /**
+   * @return the items that were not created, in batch order
+   */
+  public List<Failure> getFailures() {
+    return failures;
+  }
+
+  public static class Failure {
+
+    private final int index;
+    private final String message;
+
+    public Failure() {
+      index = 0;
+      message = null;
+    }
+
+    public Failure(int index, String message) {
+      this.index = index;
+      this.message = message;
+    }
+
+    /**
+     * @return the position of the item in the batch, from 0
+     */
+    public int getIndex() {
+      return index;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+  }
+}
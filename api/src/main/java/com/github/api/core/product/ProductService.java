@@ -1,6 +1,10 @@
 package com.github.api.core.product;
 
+import java.util.List;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public interface ProductService {
 
@@ -16,20 +20,35 @@ public interface ProductService {
    */
   @PostMapping(
     value    = "/product",
-    consumes = "application/json",
-    produces = "application/json")
-  Product createProduct(@RequestBody Product body);
+    consumes = {"application/json", "application/x-jackson-smile"},
+    produces = {"application/json", "application/x-jackson-smile"})
+  Mono<Product> createProduct(@RequestBody Product body);
 
   /**
    * Sample usage: "curl $HOST:$PORT/product/1".
    *
+   * The response carries an ETag derived from the version of the product, a request with a matching If-None-Match
+   * header is answered with 304 Not Modified and no body.
+   *
    * @param productId Id of the product
    * @return the product, if found, else null
    */
   @GetMapping(
     value = "/product/{productId}",
-    produces = "application/json")
-  Product getProduct(@PathVariable int productId);
+    produces = {"application/json", "application/x-jackson-smile"})
+  Mono<ResponseEntity<Product>> getProduct(@PathVariable int productId);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/product?productIds=1,2,3".
+   *
+   * @param productIds Ids of the products
+   * @return the products found, ids without a product are left out
+   */
+  @GetMapping(
+    value = "/product",
+    params = "productIds",
+    produces = {"application/json", "application/x-jackson-smile"})
+  Flux<Product> getProducts(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
 
   /**
    * Sample usage: "curl -X DELETE $HOST:$PORT/product/1".
@@ -37,5 +56,5 @@ public interface ProductService {
    * @param productId Id of the product
    */
   @DeleteMapping(value = "/product/{productId}")
-  void deleteProduct(@PathVariable int productId);
+  Mono<Void> deleteProduct(@PathVariable int productId);
 }
@@ -1,7 +1,11 @@
 package com.github.api.core.recommendation;
 
 import java.util.List;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import com.github.api.core.BatchResult;
 
 public interface RecommendationService {
 
@@ -17,21 +21,64 @@ public interface RecommendationService {
    */
   @PostMapping(
     value    = "/recommendation",
-    consumes = "application/json",
-    produces = "application/json")
-  Recommendation createRecommendation(@RequestBody Recommendation body);
+    consumes = {"application/json", "application/x-jackson-smile"},
+    produces = {"application/json", "application/x-jackson-smile"})
+  Mono<Recommendation> createRecommendation(@RequestBody Recommendation body);
 
   /**
-   * Sample usage: "curl $HOST:$PORT/recommendation?productId=1".
+   * Sample usage, see below.
+   *
+   * curl -X POST $HOST:$PORT/recommendation/batch \
+   *   -H "Content-Type: application/json" --data \
+   *   '[{"productId":123,"recommendationId":1,"author":"me","rate":5,"content":"yada"},
+   *     {"productId":123,"recommendationId":2,"author":"you","rate":3,"content":"yada"}]'
+   *
+   * The recommendations are written together in one unordered bulk insert. A recommendation that cannot be created,
+   * e.g. since it already exists, does not stop the others, it is reported in the failures of the result.
+   *
+   * @param body The recommendations to create, at most the maximum batch size of the service
+   * @return the number of recommendations created and the ones that were not
+   */
+  @PostMapping(
+    value    = "/recommendation/batch",
+    consumes = {"application/json", "application/x-jackson-smile"},
+    produces = {"application/json", "application/x-jackson-smile"})
+  Mono<BatchResult> createRecommendations(@RequestBody List<Recommendation> body);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/recommendation?productId=1&limit=10&after=5".
+   *
+   * The recommendations are returned in recommendationId order. A page that is as long as the limit may be followed
+   * by more, the next page is requested with the recommendationId of its last recommendation as after.
+   *
+   * The response carries an ETag derived from the versions of the recommendations in the page, a request with a
+   * matching If-None-Match header is answered with 304 Not Modified and no body.
    *
    * @param productId Id of the product
+   * @param limit Maximum number of recommendations to return, the maximum page size of the service if not specified
+   * @param after Only return recommendations with a higher recommendationId, the first page if not specified
    * @return the recommendations of the product
    */
   @GetMapping(
     value = "/recommendation",
-    produces = "application/json")
-  List<Recommendation> getRecommendations(
-    @RequestParam(value = "productId", required = true) int productId);
+    produces = {"application/json", "application/x-jackson-smile"})
+  Mono<ResponseEntity<List<Recommendation>>> getRecommendations(
+    @RequestParam(value = "productId", required = true) int productId,
+    @RequestParam(value = "limit", required = false) Integer limit,
+    @RequestParam(value = "after", required = false) Integer after);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/recommendation?productIds=1,2,3".
+   *
+   * @param productIds Ids of the products
+   * @return the recommendations of all the products
+   */
+  @GetMapping(
+    value = "/recommendation",
+    params = "productIds",
+    produces = {"application/json", "application/x-jackson-smile"})
+  Flux<Recommendation> getRecommendations(
+    @RequestParam(value = "productIds", required = true) List<Integer> productIds);
 
   /**
    * Sample usage: "curl -X DELETE $HOST:$PORT/recommendation?productId=1".
@@ -39,5 +86,5 @@ public interface RecommendationService {
    * @param productId Id of the product
    */
   @DeleteMapping(value = "/recommendation")
-  void deleteRecommendations(@RequestParam(value = "productId", required = true)  int productId);
+  Mono<Void> deleteRecommendations(@RequestParam(value = "productId", required = true)  int productId);
 }
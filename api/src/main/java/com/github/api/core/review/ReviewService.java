@@ -1,7 +1,11 @@
 package com.github.api.core.review;
 
 import java.util.List;
+import com.github.api.core.BatchResult;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public interface ReviewService {
 
@@ -17,20 +21,63 @@ public interface ReviewService {
    */
   @PostMapping(
       value    = "/review",
-      consumes = "application/json",
-      produces = "application/json")
-  Review createReview(@RequestBody Review body);
+      consumes = {"application/json", "application/x-jackson-smile"},
+      produces = {"application/json", "application/x-jackson-smile"})
+  Mono<Review> createReview(@RequestBody Review body);
 
   /**
-   * Sample usage: "curl $HOST:$PORT/review?productId=1".
+   * Sample usage, see below.
+   *
+   * curl -X POST $HOST:$PORT/review/batch \
+   *   -H "Content-Type: application/json" --data \
+   *   '[{"productId":123,"reviewId":1,"author":"me","subject":"yada","content":"yada"},
+   *     {"productId":123,"reviewId":2,"author":"you","subject":"yada","content":"yada"}]'
+   *
+   * The reviews are written together in one transaction, with one batched insert. A review that already exists does
+   * not stop the others, it is reported in the failures of the result.
+   *
+   * @param body The reviews to create, at most the maximum batch size of the service
+   * @return the number of reviews created and the ones that were not
+   */
+  @PostMapping(
+    value    = "/review/batch",
+    consumes = {"application/json", "application/x-jackson-smile"},
+    produces = {"application/json", "application/x-jackson-smile"})
+  Mono<BatchResult> createReviews(@RequestBody List<Review> body);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/review?productId=1&limit=10&after=5".
+   *
+   * The reviews are returned in reviewId order. A page that is as long as the limit may be followed by more, the next
+   * page is requested with the reviewId of its last review as after.
+   *
+   * The response carries an ETag derived from the versions of the reviews in the page, a request with a matching
+   * If-None-Match header is answered with 304 Not Modified and no body.
    *
    * @param productId Id of the product
+   * @param limit Maximum number of reviews to return, the maximum page size of the service if not specified
+   * @param after Only return reviews with a higher reviewId, the first page if not specified
    * @return the reviews of the product
    */
   @GetMapping(
     value = "/review",
-    produces = "application/json")
-  List<Review> getReviews(@RequestParam(value = "productId", required = true) int productId);
+    produces = {"application/json", "application/x-jackson-smile"})
+  Mono<ResponseEntity<List<Review>>> getReviews(
+    @RequestParam(value = "productId", required = true) int productId,
+    @RequestParam(value = "limit", required = false) Integer limit,
+    @RequestParam(value = "after", required = false) Integer after);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/review?productIds=1,2,3".
+   *
+   * @param productIds Ids of the products
+   * @return the reviews of all the products
+   */
+  @GetMapping(
+    value = "/review",
+    params = "productIds",
+    produces = {"application/json", "application/x-jackson-smile"})
+  Flux<Review> getReviews(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
 
   /**
    * Sample usage: "curl -X DELETE $HOST:$PORT/review?productId=1".
@@ -38,5 +85,5 @@ public interface ReviewService {
    * @param productId Id of the product
    */
   @DeleteMapping(value = "/review")
-  void deleteReviews(@RequestParam(value = "productId", required = true)  int productId);
+  Mono<Void> deleteReviews(@RequestParam(value = "productId", required = true)  int productId);
 }
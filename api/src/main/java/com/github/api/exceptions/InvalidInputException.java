@@ -14,4 +14,15 @@ public class InvalidInputException extends RuntimeException {
   public InvalidInputException(Throwable cause) {
     super(cause);
   }
+
+  /**
+   * Creates an exception without a stack trace, for input that is rejected before it is processed.
+   */
+  public static InvalidInputException withoutStackTrace(String message) {
+    return new InvalidInputException(message, false);
+  }
+
+  private InvalidInputException(String message, boolean writableStackTrace) {
+    super(message, null, false, writableStackTrace);
+  }
 }
@@ -14,4 +14,16 @@ public class NotFoundException extends RuntimeException {
   public NotFoundException(Throwable cause) {
     super(cause);
   }
+
+  /**
+   * Creates an exception without a stack trace. Looking up an id that does not exist is an expected outcome, the stack
+   * trace would never be looked at but filling it in is most of the cost of throwing the exception.
+   */
+  public static NotFoundException withoutStackTrace(String message) {
+    return new NotFoundException(message, false);
+  }
+
+  private NotFoundException(String message, boolean writableStackTrace) {
+    super(message, null, false, writableStackTrace);
+  }
 }
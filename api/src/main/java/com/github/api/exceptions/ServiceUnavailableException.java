@@ -0,0 +1,29 @@
+package com.github.api.exceptions;
+
+public class ServiceUnavailableException extends RuntimeException {
+  public ServiceUnavailableException() {}
+
+  public ServiceUnavailableException(String message) {
+    super(message);
+  }
+
+  public ServiceUnavailableException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public ServiceUnavailableException(Throwable cause) {
+    super(cause);
+  }
+
+  /**
+   * Creates an exception without a stack trace, for calls that are rejected without being made. Since it is immutable
+   * it can be created once and thrown repeatedly.
+   */
+  public static ServiceUnavailableException withoutStackTrace(String message) {
+    return new ServiceUnavailableException(message, false);
+  }
+
+  private ServiceUnavailableException(String message, boolean writableStackTrace) {
+    super(message, null, false, writableStackTrace);
+  }
+}
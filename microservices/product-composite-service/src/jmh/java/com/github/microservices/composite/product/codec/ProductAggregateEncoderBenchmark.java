@@ -0,0 +1,99 @@
+package com.github.microservices.composite.product.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.util.MimeTypeUtils;
+import io.netty.buffer.PooledByteBufAllocator;
+import com.github.api.composite.product.ProductAggregate;
+import com.github.api.composite.product.RecommendationSummary;
+import com.github.api.composite.product.ReviewSummary;
+import com.github.api.composite.product.ServiceAddresses;
+import com.github.api.core.recommendation.Recommendation;
+import com.github.api.core.review.Review;
+
+/**
+ * Assembles and encodes a product aggregate, as done for each response that is not cached.
+ *
+ * Compares copying the recommendations and reviews into summaries and encoding them with Jackson, with keeping them as
+ * received and encoding them with {@link ProductAggregateEncoder}. Run with "./gradlew jmh", the gc profiler reports
+ * the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductAggregateEncoderBenchmark {
+
+  private static final ResolvableType TYPE = ResolvableType.forClass(ProductAggregate.class);
+
+  @Param({"10", "500"})
+  private int reviewCount;
+
+  private final DataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Jackson2JsonEncoder jacksonEncoder = new Jackson2JsonEncoder(mapper);
+  private final ProductAggregateEncoder encoder = new ProductAggregateEncoder(mapper.getFactory());
+
+  private List<Recommendation> recommendations;
+  private List<Review> reviews;
+  private ServiceAddresses serviceAddresses;
+
+  @Setup
+  public void setUp() {
+    recommendations = new ArrayList<>();
+    reviews = new ArrayList<>();
+    for (int i = 0; i < reviewCount; i++) {
+      recommendations.add(new Recommendation(1, i, "author " + i, i % 5, "recommendation content " + i, "rec:8080"));
+      reviews.add(new Review(1, i, "author " + i, "subject " + i, "a somewhat longer review content " + i, "rev:8080"));
+    }
+    serviceAddresses = new ServiceAddresses("cmp:8080", "pro:8080", "rev:8080", "rec:8080");
+  }
+
+  @Benchmark
+  public int summariesWithJackson() {
+    List<RecommendationSummary> recommendationSummaries = recommendations.stream()
+      .map(r -> new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent()))
+      .collect(Collectors.toList());
+    List<ReviewSummary> reviewSummaries = reviews.stream()
+      .map(r -> new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent()))
+      .collect(Collectors.toList());
+    ProductAggregate aggregate = new ProductAggregate(1, "name", 1, recommendationSummaries, reviewSummaries, serviceAddresses);
+
+    return release(jacksonEncoder.encodeValue(aggregate, bufferFactory, TYPE, MimeTypeUtils.APPLICATION_JSON, null));
+  }
+
+  @Benchmark
+  public int assembledWithEncoder() {
+    ProductAggregate aggregate = new AssembledProductAggregate(1, "name", 1, recommendations, null, reviews, null, serviceAddresses, false, null);
+
+    return release(encoder.encodeValue(aggregate, bufferFactory, TYPE, MimeTypeUtils.APPLICATION_JSON, null));
+  }
+
+  private static int release(DataBuffer buffer) {
+    int bytes = buffer.readableByteCount();
+    DataBufferUtils.release(buffer);
+    return bytes;
+  }
+}
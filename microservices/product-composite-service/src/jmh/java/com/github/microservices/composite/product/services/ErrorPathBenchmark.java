@@ -0,0 +1,103 @@
+package com.github.microservices.composite.product.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import com.github.api.exceptions.NotFoundException;
+import com.github.util.http.HttpErrorInfo;
+
+/**
+ * The CPU spent on a request for a product that does not exist, outside of the HTTP handling: the core service throws
+ * a NotFoundException, answers with an error body and the composite reads the message of the body.
+ *
+ * The "before" benchmarks throw the exception with its stack trace and bind the whole body to read its message, the
+ * "after" benchmarks do as the services do now. The depth is the number of frames on the stack when the exception is
+ * thrown, a reactive request is handled well over a hundred frames deep. Run with "./gradlew jmh".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorPathBenchmark {
+
+  @Param({"20", "150"})
+  private int depth;
+
+  private ObjectMapper mapper;
+  private byte[] body;
+
+  @Setup
+  public void setUp() throws IOException {
+    mapper = Jackson2ObjectMapperBuilder.json().build();
+    body = mapper.writeValueAsBytes(new HttpErrorInfo(HttpStatus.NOT_FOUND, "/product/13", "No product found for productId: 13"));
+  }
+
+  @Benchmark
+  public Object throwWithStackTrace() {
+    return thrown(depth, NotFoundException::new);
+  }
+
+  @Benchmark
+  public Object throwWithoutStackTrace() {
+    return thrown(depth, NotFoundException::withoutStackTrace);
+  }
+
+  @Benchmark
+  public String readMessageBound() throws IOException {
+    return mapper.readValue(body, HttpErrorInfo.class).getMessage();
+  }
+
+  @Benchmark
+  public String readMessageStreamed() throws IOException {
+    return ProductCompositeIntegration.readErrorMessage(mapper.getFactory(), body);
+  }
+
+  @Benchmark
+  public String notFoundBefore() throws IOException {
+    RuntimeException ex = thrown(depth, NotFoundException::new);
+    byte[] error = mapper.writeValueAsBytes(new HttpErrorInfo(HttpStatus.NOT_FOUND, "/product/13", ex.getMessage()));
+    return mapper.readValue(error, HttpErrorInfo.class).getMessage();
+  }
+
+  @Benchmark
+  public String notFoundAfter() throws IOException {
+    RuntimeException ex = thrown(depth, NotFoundException::withoutStackTrace);
+    byte[] error = mapper.writeValueAsBytes(new HttpErrorInfo(HttpStatus.NOT_FOUND, "/product/13", ex.getMessage()));
+    return ProductCompositeIntegration.readErrorMessage(mapper.getFactory(), error);
+  }
+
+  /**
+   * Throws the exception the given number of frames deep and catches it at the top.
+   */
+  private static RuntimeException thrown(int depth, Function<String, RuntimeException> exception) {
+    try {
+      descend(depth, exception);
+      throw new IllegalStateException("Not thrown");
+    } catch (NotFoundException ex) {
+      return ex;
+    }
+  }
+
+  private static void descend(int depth, Function<String, RuntimeException> exception) {
+    if (depth == 0) {
+      throw exception.apply("No product found for productId: 13");
+    }
+    descend(depth - 1, exception);
+  }
+}
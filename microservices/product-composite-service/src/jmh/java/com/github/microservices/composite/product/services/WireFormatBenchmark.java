@@ -0,0 +1,86 @@
+package com.github.microservices.composite.product.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Decoder;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+import com.github.api.core.review.Review;
+
+/**
+ * Encodes the reviews of a product as a core service does and decodes them as {@link ProductCompositeIntegration}
+ * does, in JSON and in Smile.
+ *
+ * The average time is the CPU spent on the body of one request. Run with "./gradlew jmh".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+  private static final ResolvableType LIST_TYPE = ResolvableType.forClassWithGenerics(List.class, Review.class);
+  private static final ResolvableType ELEMENT_TYPE = ResolvableType.forClass(Review.class);
+
+  @Param({"json", "smile"})
+  private String format;
+
+  @Param({"10", "500"})
+  private int reviewCount;
+
+  private Encoder<Object> encoder;
+  private Decoder<Object> decoder;
+  private MimeType mimeType;
+  private List<Review> reviews;
+
+  @Setup
+  public void setUp() {
+    if ("smile".equals(format)) {
+      encoder = new Jackson2SmileEncoder();
+      decoder = new Jackson2SmileDecoder();
+      mimeType = new MimeType("application", "x-jackson-smile");
+    } else {
+      encoder = new Jackson2JsonEncoder();
+      decoder = new Jackson2JsonDecoder();
+      mimeType = MimeTypeUtils.APPLICATION_JSON;
+    }
+
+    reviews = new ArrayList<>();
+    for (int i = 0; i < reviewCount; i++) {
+      reviews.add(new Review(1, i, "author " + i, "subject " + i, "a somewhat longer review content " + i, "rev:8080"));
+    }
+  }
+
+  @Benchmark
+  public int encodeAndDecode() {
+    List<Object> received = decoder.decode(Flux.just(encode()), ELEMENT_TYPE, mimeType, null).collectList().block();
+    return received.size();
+  }
+
+  private DataBuffer encode() {
+    return encoder.encodeValue(reviews, DefaultDataBufferFactory.sharedInstance, LIST_TYPE, mimeType, null);
+  }
+}
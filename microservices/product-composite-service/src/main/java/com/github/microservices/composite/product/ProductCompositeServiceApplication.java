@@ -1,5 +1,7 @@
 package com.github.microservices.composite.product;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.microservices.composite.product.codec.ProductAggregateEncoder;
 import io.swagger.v3.oas.models.ExternalDocumentation;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Contact;
@@ -8,9 +10,11 @@ import io.swagger.v3.oas.models.info.License;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.ReactorNettyHttpClientMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
 
 @SpringBootApplication
 @ComponentScan("com.github")
@@ -52,9 +56,29 @@ public class ProductCompositeServiceApplication {
         .url(apiExternalDocUrl));
   }
 
+  /**
+   * Product aggregates are written by a dedicated encoder, it is registered ahead of the Jackson encoder.
+   *
+   * @return the configuration of the server codecs
+   */
+  @Bean
+  public WebFluxConfigurer productAggregateCodecConfigurer(ObjectMapper mapper) {
+    return new WebFluxConfigurer() {
+      @Override
+      public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+        configurer.customCodecs().register(new ProductAggregateEncoder(mapper.getFactory()));
+      }
+    };
+  }
+
+  /**
+   * The core services compress large responses, the client asks for gzip and decompresses the responses it receives.
+   *
+   * @return the customization of the HTTP client behind the WebClient builder
+   */
   @Bean
-  RestTemplate restTemplate() {
-    return new RestTemplate();
+  public ReactorNettyHttpClientMapper compressingHttpClientMapper() {
+    return httpClient -> httpClient.compress(true);
   }
 
   public static void main(String[] args) {
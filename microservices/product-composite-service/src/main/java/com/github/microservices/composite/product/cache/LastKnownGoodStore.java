@@ -0,0 +1,151 @@
+package com.github.microservices.composite.product.cache;
+
+import static java.util.Collections.emptyList;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToLongFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import com.github.api.core.recommendation.Recommendation;
+import com.github.api.core.review.Review;
+
+/**
+ * Keeps the last successfully fetched recommendations and reviews of each product.
+ *
+ * When a call to the recommendation or review service fails, or does not respond within the latency budget, the last
+ * known good copy is served instead and marked as stale. A call that timed out is left running in the background and
+ * its response replaces the stored copy. Without a stored copy, the call is awaited and an empty list is returned if
+ * it fails, i.e. a partial response.
+ */
+@Component
+public class LastKnownGoodStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LastKnownGoodStore.class);
+
+  private final Duration latencyBudget;
+
+  private final Part<Recommendation> recommendations;
+  private final Part<Review> reviews;
+
+  @Autowired
+  public LastKnownGoodStore(
+    MeterRegistry registry,
+    @Value("${app.product-composite.last-known-good.latency-budget}") Duration latencyBudget,
+    @Value("${app.product-composite.last-known-good.maximum-weight}") DataSize maximumWeight,
+    @Value("${app.product-composite.last-known-good.maximum-age}") Duration maximumAge) {
+
+    this.latencyBudget = latencyBudget;
+
+    long partWeight = maximumWeight.toBytes() / 2;
+    recommendations = new Part<>("recommendations", registry, partWeight, maximumAge,
+      r -> 32 + sizeOf(r.getAuthor()) + sizeOf(r.getContent()) + sizeOf(r.getServiceAddress()));
+    reviews = new Part<>("reviews", registry, partWeight, maximumAge,
+      r -> 32 + sizeOf(r.getAuthor()) + sizeOf(r.getSubject()) + sizeOf(r.getContent()) + sizeOf(r.getServiceAddress()));
+  }
+
+  public Mono<Snapshot<List<Recommendation>>> getRecommendations(int productId, Mono<List<Recommendation>> call) {
+    return fetch(recommendations, productId, call);
+  }
+
+  public Mono<Snapshot<List<Review>>> getReviews(int productId, Mono<List<Review>> call) {
+    return fetch(reviews, productId, call);
+  }
+
+  private <T> Mono<Snapshot<List<T>>> fetch(Part<T> part, int productId, Mono<List<T>> call) {
+
+    Mono<List<T>> live = call.doOnNext(list -> part.store.put(productId, list));
+
+    return Mono.defer(() -> {
+      List<T> lastKnownGood = part.store.getIfPresent(productId);
+
+      if (lastKnownGood == null) {
+        return live
+          .map(Snapshot::fresh)
+          .onErrorResume(error -> {
+            LOG.warn("Got an exception while requesting {}, return zero {}: {}", part.name, part.name, error.toString());
+            return Mono.just(Snapshot.fresh(emptyList()));
+          });
+      }
+
+      // The timeout only cancels the wait for the cached call, not the call itself, so a late response still replaces
+      // the stored copy and a call that timed out is not made again
+      Mono<List<T>> shared = live.cache();
+
+      return shared
+        .map(Snapshot::fresh)
+        .timeout(latencyBudget)
+        .onErrorResume(error -> {
+          LOG.warn("Got an exception while requesting {}, return last known good {} of productId: {}, error: {}",
+            part.name, part.name, productId, error.toString());
+          part.staleResponses.increment();
+
+          if (error instanceof TimeoutException) {
+            shared.subscribe(
+              list -> LOG.debug("Revalidated {} of productId: {}", part.name, productId),
+              revalidationError -> LOG.debug("Failed to revalidate {} of productId: {}", part.name, productId));
+          }
+          return Mono.just(Snapshot.stale(lastKnownGood));
+        });
+    });
+  }
+
+  private static long sizeOf(String value) {
+    return value == null ? 0 : 40 + value.length();
+  }
+
+  private static class Part<T> {
+    private final String name;
+    private final Cache<Integer, List<T>> store;
+    private final Counter staleResponses;
+
+    Part(String name, MeterRegistry registry, long maximumWeight, Duration maximumAge, ToLongFunction<T> sizeOfItem) {
+      this.name = name;
+      this.store = Caffeine.newBuilder()
+        .maximumWeight(maximumWeight)
+        .weigher((Integer productId, List<T> items) -> (int) Math.min(Integer.MAX_VALUE, 16 + items.stream().mapToLong(sizeOfItem).sum()))
+        .expireAfterWrite(maximumAge)
+        .build();
+      this.staleResponses = Counter.builder("product-composite.stale-responses")
+        .description("Responses served from the last known good copy since a core service failed")
+        .tag("part", name)
+        .register(registry);
+    }
+  }
+
+  public static class Snapshot<T> {
+    private final T value;
+    private final boolean stale;
+
+    private Snapshot(T value, boolean stale) {
+      this.value = value;
+      this.stale = stale;
+    }
+
+    public static <T> Snapshot<T> fresh(T value) {
+      return new Snapshot<>(value, false);
+    }
+
+    static <T> Snapshot<T> stale(T value) {
+      return new Snapshot<>(value, true);
+    }
+
+    public T getValue() {
+      return value;
+    }
+
+    public boolean isStale() {
+      return stale;
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package com.github.microservices.composite.product.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import com.github.api.composite.product.ProductAggregate;
+import com.github.api.composite.product.RecommendationSummary;
+import com.github.api.composite.product.ReviewSummary;
+import com.github.api.composite.product.ServiceAddresses;
+
+/**
+ * Bounded in-memory cache of assembled product aggregates.
+ *
+ * Admission and eviction are frequency aware (W-TinyLFU, as implemented by Caffeine) and the cache is bounded by the
+ * estimated heap footprint of the aggregates rather than by their number. Each entry gets its own time to live, partial
+ * aggregates expire sooner than complete ones, and entries that are read after the refresh interval are reloaded in
+ * the background while the cached aggregate is still served.
+ */
+@Component
+public class ProductAggregateCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ProductAggregateCache.class);
+
+  private final AsyncCache<Integer, CachedAggregate> cache;
+  private final Ticker ticker;
+  private final long refreshAfterNanos;
+
+  @Autowired
+  public ProductAggregateCache(
+    MeterRegistry registry,
+    @Value("${app.product-composite.cache.maximum-weight}") DataSize maximumWeight,
+    @Value("${app.product-composite.cache.time-to-live}") Duration timeToLive,
+    @Value("${app.product-composite.cache.partial-time-to-live}") Duration partialTimeToLive,
+    @Value("${app.product-composite.cache.refresh-after}") Duration refreshAfter) {
+
+    this(registry, maximumWeight, timeToLive, partialTimeToLive, refreshAfter, Ticker.systemTicker());
+  }
+
+  ProductAggregateCache(
+    MeterRegistry registry,
+    DataSize maximumWeight,
+    Duration timeToLive,
+    Duration partialTimeToLive,
+    Duration refreshAfter,
+    Ticker ticker) {
+
+    this.ticker = ticker;
+    this.refreshAfterNanos = refreshAfter.toNanos();
+
+    cache = Caffeine.newBuilder()
+      .maximumWeight(maximumWeight.toBytes())
+      .weigher((Integer productId, CachedAggregate entry) -> entry.weight)
+      .expireAfter(new AggregateExpiry(timeToLive.toNanos(), partialTimeToLive.toNanos()))
+      .ticker(ticker)
+      .recordStats()
+      .buildAsync();
+
+    CaffeineCacheMetrics.monitor(registry, cache, "product-aggregate");
+
+    LOG.info("Caching product aggregates up to {} bytes, time to live: {}, partial time to live: {}, refresh after: {}",
+      maximumWeight.toBytes(), timeToLive, partialTimeToLive, refreshAfter);
+  }
+
+  /**
+   * Returns the cached aggregate of a product, or loads and caches it if it is missing.
+   *
+   * Concurrent lookups of a product that is not cached share the same load.
+   *
+   * @param productId Id of the product
+   * @param loader Assembles the aggregate of a product, used both for loads and background refreshes
+   * @return the aggregate of the product
+   */
+  public Mono<ProductAggregate> get(int productId, IntFunction<Mono<ProductAggregate>> loader) {
+    return Mono.defer(() -> {
+      CompletableFuture<CachedAggregate> future = cache.get(productId, (key, executor) -> load(productId, loader));
+      return Mono.fromFuture(future)
+        .doOnNext(entry -> refreshIfDue(productId, future, entry, loader))
+        .map(entry -> entry.aggregate);
+    });
+  }
+
+  /**
+   * Returns the cached aggregate of a product without loading or refreshing it.
+   *
+   * @param productId Id of the product
+   * @return the aggregate of the product, or empty if it is not cached
+   */
+  public Mono<ProductAggregate> getIfPresent(int productId) {
+    return Mono.defer(() -> {
+      CompletableFuture<CachedAggregate> future = cache.getIfPresent(productId);
+      if (future == null) {
+        return Mono.empty();
+      }
+      // A load that fails is not cached, the caller loads the aggregate itself instead
+      return Mono.fromFuture(future)
+        .map(entry -> entry.aggregate)
+        .onErrorResume(error -> Mono.empty());
+    });
+  }
+
+  /**
+   * Removes the cached aggregate of a product, if any.
+   *
+   * A load or refresh of the product that is in flight will not be cached.
+   *
+   * @param productId Id of the product
+   */
+  public void invalidate(int productId) {
+    LOG.debug("invalidate: removes the cached aggregate of productId: {}", productId);
+    cache.synchronous().invalidate(productId);
+  }
+
+  private CompletableFuture<CachedAggregate> load(int productId, IntFunction<Mono<ProductAggregate>> loader) {
+    return loader.apply(productId)
+      .map(aggregate -> new CachedAggregate(aggregate, ticker.read()))
+      .toFuture();
+  }
+
+  private void refreshIfDue(
+    int productId,
+    CompletableFuture<CachedAggregate> current,
+    CachedAggregate entry,
+    IntFunction<Mono<ProductAggregate>> loader) {
+
+    if (ticker.read() - entry.loadedAt < refreshAfterNanos || !entry.refreshing.compareAndSet(false, true)) {
+      return;
+    }
+
+    LOG.debug("refreshIfDue: refreshes the cached aggregate of productId: {}", productId);
+
+    // Only replace the entry that was refreshed, the product may have been invalidated or reloaded meanwhile
+    loader.apply(productId).subscribe(
+      aggregate -> cache.asMap().replace(productId, current,
+        CompletableFuture.completedFuture(new CachedAggregate(aggregate, ticker.read()))),
+      error -> {
+        LOG.warn("Failed to refresh the cached aggregate of productId: {}, error: {}", productId, error.toString());
+        entry.refreshing.set(false);
+      });
+  }
+
+  /**
+   * Rough estimate of the heap retained by an aggregate, in bytes.
+   */
+  static int estimateWeight(ProductAggregate aggregate) {
+    long weight = 64 + sizeOf(aggregate.getName());
+
+    List<RecommendationSummary> recommendations = aggregate.getRecommendations();
+    if (recommendations != null) {
+      weight += 16 + 8L * recommendations.size();
+      for (RecommendationSummary r : recommendations) {
+        weight += 32 + sizeOf(r.getAuthor()) + sizeOf(r.getContent());
+      }
+    }
+
+    List<ReviewSummary> reviews = aggregate.getReviews();
+    if (reviews != null) {
+      weight += 16 + 8L * reviews.size();
+      for (ReviewSummary r : reviews) {
+        weight += 32 + sizeOf(r.getAuthor()) + sizeOf(r.getSubject()) + sizeOf(r.getContent());
+      }
+    }
+
+    ServiceAddresses addresses = aggregate.getServiceAddresses();
+    if (addresses != null) {
+      weight += 32 + sizeOf(addresses.getCmp()) + sizeOf(addresses.getPro()) + sizeOf(addresses.getRev()) + sizeOf(addresses.getRec());
+    }
+
+    return (int) Math.min(weight, Integer.MAX_VALUE);
+  }
+
+  private static long sizeOf(String value) {
+    return value == null ? 0 : 40 + value.length();
+  }
+
+  /**
+   * An aggregate is partial when its recommendations or reviews are missing or stale, typically since a core service
+   * failed.
+   */
+  static boolean isPartial(ProductAggregate aggregate) {
+    return aggregate.isStale()
+      || aggregate.getRecommendations() == null || aggregate.getRecommendations().isEmpty()
+      || aggregate.getReviews() == null || aggregate.getReviews().isEmpty();
+  }
+
+  private static class CachedAggregate {
+    private final ProductAggregate aggregate;
+    private final long loadedAt;
+    private final int weight;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    CachedAggregate(ProductAggregate aggregate, long loadedAt) {
+      this.aggregate = aggregate;
+      this.loadedAt = loadedAt;
+      this.weight = estimateWeight(aggregate);
+    }
+  }
+
+  private static class AggregateExpiry implements Expiry<Integer, CachedAggregate> {
+    private final long timeToLive;
+    private final long partialTimeToLive;
+
+    AggregateExpiry(long timeToLive, long partialTimeToLive) {
+      this.timeToLive = timeToLive;
+      this.partialTimeToLive = partialTimeToLive;
+    }
+
+    @Override
+    public long expireAfterCreate(Integer productId, CachedAggregate entry, long currentTime) {
+      return isPartial(entry.aggregate) ? partialTimeToLive : timeToLive;
+    }
+
+    @Override
+    public long expireAfterUpdate(Integer productId, CachedAggregate entry, long currentTime, long currentDuration) {
+      return expireAfterCreate(productId, entry, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(Integer productId, CachedAggregate entry, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.github.microservices.composite.product.codec;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.function.Function;
+import com.github.api.composite.product.ProductAggregate;
+import com.github.api.composite.product.RecommendationSummary;
+import com.github.api.composite.product.ReviewSummary;
+import com.github.api.composite.product.ServiceAddresses;
+import com.github.api.core.recommendation.Recommendation;
+import com.github.api.core.review.Review;
+
+/**
+ * Product aggregate that keeps the recommendations and reviews as they were received from the core services.
+ *
+ * No summary lists are copied when the aggregate is assembled. {@link ProductAggregateEncoder} writes the summaries
+ * straight from the received recommendations and reviews, other readers get read-only views that create a summary
+ * each time an element is read.
+ *
+ * The aggregate also keeps the entity tag combined from the tags of the responses it was assembled from, it is not part
+ * of the representation.
+ */
+public class AssembledProductAggregate extends ProductAggregate {
+
+  private final List<Recommendation> sourceRecommendations;
+  private final List<Review> sourceReviews;
+  private final String entityTag;
+
+  public AssembledProductAggregate(
+    int productId,
+    String name,
+    int weight,
+    List<Recommendation> recommendations,
+    Integer recommendationsCursor,
+    List<Review> reviews,
+    Integer reviewsCursor,
+    ServiceAddresses serviceAddresses,
+    boolean stale,
+    String entityTag) {
+
+    super(productId, name, weight, null, recommendationsCursor, null, reviewsCursor, serviceAddresses, stale);
+    this.sourceRecommendations = recommendations;
+    this.sourceReviews = reviews;
+    this.entityTag = entityTag;
+  }
+
+  /**
+   * @return the entity tag of the aggregate, or null if a part of it was not tagged, e.g. a stale fallback
+   */
+  @JsonIgnore
+  public String getEntityTag() {
+    return entityTag;
+  }
+
+  List<Recommendation> getSourceRecommendations() {
+    return sourceRecommendations;
+  }
+
+  List<Review> getSourceReviews() {
+    return sourceReviews;
+  }
+
+  @Override
+  public List<RecommendationSummary> getRecommendations() {
+    return view(sourceRecommendations,
+      r -> new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent()));
+  }
+
+  @Override
+  public List<ReviewSummary> getReviews() {
+    return view(sourceReviews, r -> new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent()));
+  }
+
+  private static <T, S> List<S> view(List<T> source, Function<T, S> summary) {
+    if (source == null) {
+      return null;
+    }
+    return new AbstractList<S>() {
+      @Override
+      public S get(int index) {
+        return summary.apply(source.get(index));
+      }
+
+      @Override
+      public int size() {
+        return source.size();
+      }
+    };
+  }
+}
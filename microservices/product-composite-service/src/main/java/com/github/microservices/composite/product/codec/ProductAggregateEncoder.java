@@ -0,0 +1,226 @@
+package com.github.microservices.composite.product.codec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import com.github.api.composite.product.ProductAggregate;
+import com.github.api.composite.product.RecommendationSummary;
+import com.github.api.composite.product.ReviewSummary;
+import com.github.api.composite.product.ServiceAddresses;
+import com.github.api.core.recommendation.Recommendation;
+import com.github.api.core.review.Review;
+
+/**
+ * Writes product aggregates as JSON straight into data buffers with a streaming generator.
+ *
+ * The output is the same as Jackson's for {@link ProductAggregate}, but no serializers are looked up and, for an
+ * {@link AssembledProductAggregate}, the summaries are written from the received recommendations and reviews without
+ * creating summary objects. A {@link Flux} of aggregates is written as a JSON array, one buffer per aggregate.
+ */
+public class ProductAggregateEncoder implements Encoder<ProductAggregate> {
+
+  private static final List<MimeType> MIME_TYPES = Collections.singletonList(MimeTypeUtils.APPLICATION_JSON);
+
+  private final JsonFactory jsonFactory;
+
+  public ProductAggregateEncoder(JsonFactory jsonFactory) {
+    this.jsonFactory = jsonFactory;
+  }
+
+  @Override
+  public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+    return ProductAggregate.class.isAssignableFrom(elementType.toClass())
+      && (mimeType == null || MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(mimeType));
+  }
+
+  @Override
+  public List<MimeType> getEncodableMimeTypes() {
+    return MIME_TYPES;
+  }
+
+  @Override
+  public Flux<DataBuffer> encode(
+    Publisher<? extends ProductAggregate> inputStream,
+    DataBufferFactory bufferFactory,
+    ResolvableType elementType,
+    MimeType mimeType,
+    Map<String, Object> hints) {
+
+    if (inputStream instanceof Mono) {
+      return Mono.from(inputStream).map(aggregate -> write(bufferFactory, null, aggregate)).flux();
+    }
+
+    return Flux.defer(() -> {
+      boolean[] first = {true};
+      Flux<DataBuffer> elements = Flux.from(inputStream).map(aggregate -> {
+        String prefix = first[0] ? "[" : ",";
+        first[0] = false;
+        return write(bufferFactory, prefix, aggregate);
+      });
+      Mono<DataBuffer> end = Mono.fromCallable(() -> {
+        DataBuffer buffer = bufferFactory.allocateBuffer(2);
+        return buffer.write(first[0] ? "[]" : "]", UTF_8);
+      });
+      return Flux.concat(elements, end);
+    });
+  }
+
+  @Override
+  public DataBuffer encodeValue(
+    ProductAggregate value,
+    DataBufferFactory bufferFactory,
+    ResolvableType valueType,
+    MimeType mimeType,
+    Map<String, Object> hints) {
+
+    return write(bufferFactory, null, value);
+  }
+
+  private DataBuffer write(DataBufferFactory bufferFactory, String prefix, ProductAggregate aggregate) {
+    DataBuffer buffer = bufferFactory.allocateBuffer();
+    boolean release = true;
+    try {
+      if (prefix != null) {
+        buffer.write(prefix, UTF_8);
+      }
+      try (JsonGenerator generator = jsonFactory.createGenerator(buffer.asOutputStream())) {
+        writeAggregate(generator, aggregate);
+      }
+      release = false;
+      return buffer;
+    } catch (IOException ex) {
+      throw new EncodingException("Failed to encode the aggregate of productId: " + aggregate.getProductId(), ex);
+    } finally {
+      if (release) {
+        DataBufferUtils.release(buffer);
+      }
+    }
+  }
+
+  static void writeAggregate(JsonGenerator generator, ProductAggregate aggregate) throws IOException {
+    generator.writeStartObject();
+    generator.writeNumberField("productId", aggregate.getProductId());
+    if (aggregate.getName() != null) {
+      generator.writeStringField("name", aggregate.getName());
+    }
+    generator.writeNumberField("weight", aggregate.getWeight());
+
+    if (aggregate instanceof AssembledProductAggregate) {
+      AssembledProductAggregate assembled = (AssembledProductAggregate) aggregate;
+      writeSourceRecommendations(generator, assembled.getSourceRecommendations());
+      writeCursor(generator, "recommendationsCursor", aggregate.getRecommendationsCursor());
+      writeSourceReviews(generator, assembled.getSourceReviews());
+      writeCursor(generator, "reviewsCursor", aggregate.getReviewsCursor());
+    } else {
+      writeRecommendations(generator, aggregate.getRecommendations());
+      writeCursor(generator, "recommendationsCursor", aggregate.getRecommendationsCursor());
+      writeReviews(generator, aggregate.getReviews());
+      writeCursor(generator, "reviewsCursor", aggregate.getReviewsCursor());
+    }
+
+    ServiceAddresses addresses = aggregate.getServiceAddresses();
+    if (addresses != null) {
+      generator.writeObjectFieldStart("serviceAddresses");
+      generator.writeStringField("cmp", addresses.getCmp());
+      generator.writeStringField("pro", addresses.getPro());
+      generator.writeStringField("rev", addresses.getRev());
+      generator.writeStringField("rec", addresses.getRec());
+      generator.writeEndObject();
+    }
+
+    if (aggregate.isStale()) {
+      generator.writeBooleanField("stale", true);
+    }
+    generator.writeEndObject();
+  }
+
+  private static void writeCursor(JsonGenerator generator, String fieldName, Integer cursor) throws IOException {
+    if (cursor != null) {
+      generator.writeNumberField(fieldName, cursor);
+    }
+  }
+
+  private static void writeSourceRecommendations(JsonGenerator generator, List<Recommendation> recommendations) throws IOException {
+    if (recommendations == null) {
+      return;
+    }
+    generator.writeArrayFieldStart("recommendations");
+    for (int i = 0, n = recommendations.size(); i < n; i++) {
+      Recommendation r = recommendations.get(i);
+      writeRecommendation(generator, r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent());
+    }
+    generator.writeEndArray();
+  }
+
+  private static void writeRecommendations(JsonGenerator generator, List<RecommendationSummary> recommendations) throws IOException {
+    if (recommendations == null) {
+      return;
+    }
+    generator.writeArrayFieldStart("recommendations");
+    for (RecommendationSummary r : recommendations) {
+      writeRecommendation(generator, r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent());
+    }
+    generator.writeEndArray();
+  }
+
+  private static void writeRecommendation(
+    JsonGenerator generator, int recommendationId, String author, int rate, String content) throws IOException {
+
+    generator.writeStartObject();
+    generator.writeNumberField("recommendationId", recommendationId);
+    generator.writeStringField("author", author);
+    generator.writeNumberField("rate", rate);
+    generator.writeStringField("content", content);
+    generator.writeEndObject();
+  }
+
+  private static void writeSourceReviews(JsonGenerator generator, List<Review> reviews) throws IOException {
+    if (reviews == null) {
+      return;
+    }
+    generator.writeArrayFieldStart("reviews");
+    for (int i = 0, n = reviews.size(); i < n; i++) {
+      Review r = reviews.get(i);
+      writeReview(generator, r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent());
+    }
+    generator.writeEndArray();
+  }
+
+  private static void writeReviews(JsonGenerator generator, List<ReviewSummary> reviews) throws IOException {
+    if (reviews == null) {
+      return;
+    }
+    generator.writeArrayFieldStart("reviews");
+    for (ReviewSummary r : reviews) {
+      writeReview(generator, r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent());
+    }
+    generator.writeEndArray();
+  }
+
+  private static void writeReview(
+    JsonGenerator generator, int reviewId, String author, String subject, String content) throws IOException {
+
+    generator.writeStartObject();
+    generator.writeNumberField("reviewId", reviewId);
+    generator.writeStringField("author", author);
+    generator.writeStringField("subject", subject);
+    generator.writeStringField("content", content);
+    generator.writeEndObject();
+  }
+}
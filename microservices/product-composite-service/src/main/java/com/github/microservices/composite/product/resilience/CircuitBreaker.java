@@ -0,0 +1,277 @@
+package com.github.microservices.composite.product.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import com.github.api.exceptions.InvalidInputException;
+import com.github.api.exceptions.NotFoundException;
+import com.github.api.exceptions.ServiceUnavailableException;
+
+/**
+ * Circuit breaker of a core service, without locks.
+ *
+ * While closed, the outcome of the most recent calls is kept in a ring buffer. The circuit opens when the failure rate
+ * or the slow call rate of the buffer reaches its threshold, and calls then fail immediately with a
+ * {@link ServiceUnavailableException}. After the wait in the open state a few trial calls are permitted (half open),
+ * and their outcome either closes the circuit again or reopens it. Not found and invalid input errors are responses
+ * of a healthy service and count as successful calls, calls rejected by a {@link ConcurrencyLimiter} are not counted.
+ * A cancelled call, e.g. a hedge that lost, counts as a slow call once it took the slow call duration, otherwise it is
+ * not counted either.
+ */
+public class CircuitBreaker {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+  enum State { CLOSED, OPEN, HALF_OPEN }
+
+  private static final int SUCCESS = 0;
+  private static final int FAILURE = 1;
+  private static final int SLOW = 2;
+
+  private final String service;
+  private final int minimumCalls;
+  private final int failureRateThreshold;
+  private final int slowCallRateThreshold;
+  private final long slowCallNanos;
+  private final long waitInOpenNanos;
+  private final int permittedCallsInHalfOpen;
+  private final LongSupplier nanoTime;
+
+  private final AtomicInteger state = new AtomicInteger(State.CLOSED.ordinal());
+  private final AtomicLong openedAt = new AtomicLong();
+
+  // Outcomes of the most recent calls while closed, as bit flags, and running totals of the flags in the buffer
+  private final AtomicIntegerArray outcomes;
+  private final AtomicLong recorded = new AtomicLong();
+  private final AtomicInteger failures = new AtomicInteger();
+  private final AtomicInteger slowCalls = new AtomicInteger();
+
+  // Trial calls while half open
+  private final AtomicInteger halfOpenPermits = new AtomicInteger();
+  private final AtomicInteger halfOpenCalls = new AtomicInteger();
+  private final AtomicInteger halfOpenFailures = new AtomicInteger();
+  private final AtomicInteger halfOpenSlowCalls = new AtomicInteger();
+
+  private final MeterRegistry registry;
+  private final Counter notPermitted;
+
+  // Rejections are thrown at the rate of the calls while the circuit is open, one stackless exception serves them all
+  private final ServiceUnavailableException openRejection;
+
+  CircuitBreaker(
+    String service,
+    MeterRegistry registry,
+    int slidingWindowSize,
+    int minimumCalls,
+    int failureRateThreshold,
+    int slowCallRateThreshold,
+    Duration slowCallDuration,
+    Duration waitInOpenState,
+    int permittedCallsInHalfOpen,
+    LongSupplier nanoTime) {
+
+    this.service = service;
+    this.openRejection = ServiceUnavailableException.withoutStackTrace("The circuit breaker of the " + service + " service is open");
+    this.registry = registry;
+    this.outcomes = new AtomicIntegerArray(slidingWindowSize);
+    this.minimumCalls = Math.min(minimumCalls, slidingWindowSize);
+    this.failureRateThreshold = failureRateThreshold;
+    this.slowCallRateThreshold = slowCallRateThreshold;
+    this.slowCallNanos = slowCallDuration.toNanos();
+    this.waitInOpenNanos = waitInOpenState.toNanos();
+    this.permittedCallsInHalfOpen = permittedCallsInHalfOpen;
+    this.nanoTime = nanoTime;
+
+    notPermitted = Counter.builder("product-composite.circuit-breaker.not-permitted")
+      .description("Calls that failed fast since the circuit was open")
+      .tag("service", service).register(registry);
+    Gauge.builder("product-composite.circuit-breaker.state", state, AtomicInteger::get)
+      .description("State of the circuit: 0 closed, 1 open, 2 half open")
+      .tag("service", service).register(registry);
+  }
+
+  public <T> Mono<T> execute(Mono<T> call) {
+    return Mono.defer(() -> {
+      if (!tryAcquirePermission()) {
+        notPermitted.increment();
+        return Mono.error(openRejection);
+      }
+
+      long start = nanoTime.getAsLong();
+      return call
+        .doOnSuccess(response -> record(start, false))
+        .doOnError(error -> onError(start, error))
+        .doOnCancel(() -> onCancel(start));
+    });
+  }
+
+  public <T> Flux<T> execute(Flux<T> call) {
+    return Flux.defer(() -> {
+      if (!tryAcquirePermission()) {
+        notPermitted.increment();
+        return Flux.error(openRejection);
+      }
+
+      long start = nanoTime.getAsLong();
+      return call
+        .doOnComplete(() -> record(start, false))
+        .doOnError(error -> onError(start, error))
+        .doOnCancel(() -> onCancel(start));
+    });
+  }
+
+  State getState() {
+    return State.values()[state.get()];
+  }
+
+  private boolean tryAcquirePermission() {
+    int current = state.get();
+
+    if (current == State.CLOSED.ordinal()) {
+      return true;
+    }
+
+    if (current == State.OPEN.ordinal()) {
+      if (nanoTime.getAsLong() - openedAt.get() < waitInOpenNanos) {
+        return false;
+      }
+      toHalfOpen();
+    }
+
+    // Half open, only a limited number of trial calls are let through
+    int permits;
+    do {
+      permits = halfOpenPermits.get();
+      if (permits <= 0 || state.get() != State.HALF_OPEN.ordinal()) {
+        return false;
+      }
+    } while (!halfOpenPermits.compareAndSet(permits, permits - 1));
+    return true;
+  }
+
+  private void releasePermission() {
+    if (state.get() == State.HALF_OPEN.ordinal()) {
+      halfOpenPermits.incrementAndGet();
+    }
+  }
+
+  private void onError(long start, Throwable error) {
+    if (error instanceof ServiceUnavailableException) {
+      // Rejected by the concurrency limiter, the call never reached the service
+      releasePermission();
+    } else {
+      record(start, !isIgnored(error));
+    }
+  }
+
+  private void onCancel(long start) {
+    // A call cancelled once it was slow, e.g. a hedge that lost, counts as a slow call
+    if (nanoTime.getAsLong() - start >= slowCallNanos) {
+      record(start, false);
+    } else {
+      releasePermission();
+    }
+  }
+
+  private void record(long start, boolean failed) {
+    boolean slow = nanoTime.getAsLong() - start >= slowCallNanos;
+    int current = state.get();
+
+    if (current == State.CLOSED.ordinal()) {
+      recordClosed(failed, slow);
+    } else if (current == State.HALF_OPEN.ordinal()) {
+      recordHalfOpen(failed, slow);
+    }
+  }
+
+  private void recordClosed(boolean failed, boolean slow) {
+    int outcome = (failed ? FAILURE : SUCCESS) | (slow ? SLOW : SUCCESS);
+    long n = recorded.getAndIncrement();
+    int previous = outcomes.getAndSet((int) (n % outcomes.length()), outcome);
+
+    int failureCount = failures.addAndGet((outcome & FAILURE) - (previous & FAILURE));
+    int slowCount = slowCalls.addAndGet(((outcome & SLOW) - (previous & SLOW)) / SLOW);
+
+    int calls = (int) Math.min(n + 1, outcomes.length());
+    if (calls >= minimumCalls && exceedsThresholds(calls, failureCount, slowCount)) {
+      toOpen(State.CLOSED, calls, failureCount, slowCount);
+    }
+  }
+
+  private void recordHalfOpen(boolean failed, boolean slow) {
+    int failureCount = failed ? halfOpenFailures.incrementAndGet() : halfOpenFailures.get();
+    int slowCount = slow ? halfOpenSlowCalls.incrementAndGet() : halfOpenSlowCalls.get();
+    int calls = halfOpenCalls.incrementAndGet();
+
+    if (calls < permittedCallsInHalfOpen) {
+      return;
+    }
+    if (exceedsThresholds(calls, failureCount, slowCount)) {
+      toOpen(State.HALF_OPEN, calls, failureCount, slowCount);
+    } else {
+      toClosed();
+    }
+  }
+
+  private boolean exceedsThresholds(int calls, int failureCount, int slowCount) {
+    return failureCount * 100 >= failureRateThreshold * calls || slowCount * 100 >= slowCallRateThreshold * calls;
+  }
+
+  private void toOpen(State from, int calls, int failureCount, int slowCount) {
+    openedAt.set(nanoTime.getAsLong());
+    if (transition(from, State.OPEN)) {
+      halfOpenPermits.set(0);
+      LOG.warn("Opened the circuit of the {} service, {} failed and {} slow of the last {} calls",
+        service, failureCount, slowCount, calls);
+    }
+  }
+
+  private void toHalfOpen() {
+    if (transition(State.OPEN, State.HALF_OPEN)) {
+      halfOpenCalls.set(0);
+      halfOpenFailures.set(0);
+      halfOpenSlowCalls.set(0);
+      halfOpenPermits.set(permittedCallsInHalfOpen);
+      LOG.info("Half opened the circuit of the {} service, permits {} trial calls", service, permittedCallsInHalfOpen);
+    }
+  }
+
+  private void toClosed() {
+    for (int i = 0; i < outcomes.length(); i++) {
+      outcomes.set(i, SUCCESS);
+    }
+    recorded.set(0);
+    failures.set(0);
+    slowCalls.set(0);
+    if (transition(State.HALF_OPEN, State.CLOSED)) {
+      LOG.info("Closed the circuit of the {} service", service);
+    }
+  }
+
+  private boolean transition(State from, State to) {
+    if (!state.compareAndSet(from.ordinal(), to.ordinal())) {
+      return false;
+    }
+    Counter.builder("product-composite.circuit-breaker.transitions")
+      .description("State transitions of the circuit")
+      .tag("service", service)
+      .tag("from", from.name().toLowerCase())
+      .tag("to", to.name().toLowerCase())
+      .register(registry)
+      .increment();
+    return true;
+  }
+
+  private static boolean isIgnored(Throwable error) {
+    return error instanceof NotFoundException || error instanceof InvalidInputException;
+  }
+}
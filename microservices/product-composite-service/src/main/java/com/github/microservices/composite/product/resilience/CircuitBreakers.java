@@ -0,0 +1,56 @@
+package com.github.microservices.composite.product.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the circuit breakers of the core services, each with its own state.
+ */
+@Component
+public class CircuitBreakers {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CircuitBreakers.class);
+
+  private final MeterRegistry registry;
+  private final int slidingWindowSize;
+  private final int minimumCalls;
+  private final int failureRateThreshold;
+  private final int slowCallRateThreshold;
+  private final Duration slowCallDuration;
+  private final Duration waitInOpenState;
+  private final int permittedCallsInHalfOpenState;
+
+  @Autowired
+  public CircuitBreakers(
+    MeterRegistry registry,
+    @Value("${app.product-composite.circuit-breaker.sliding-window-size}") int slidingWindowSize,
+    @Value("${app.product-composite.circuit-breaker.minimum-calls}") int minimumCalls,
+    @Value("${app.product-composite.circuit-breaker.failure-rate-threshold}") int failureRateThreshold,
+    @Value("${app.product-composite.circuit-breaker.slow-call-rate-threshold}") int slowCallRateThreshold,
+    @Value("${app.product-composite.circuit-breaker.slow-call-duration}") Duration slowCallDuration,
+    @Value("${app.product-composite.circuit-breaker.wait-in-open-state}") Duration waitInOpenState,
+    @Value("${app.product-composite.circuit-breaker.permitted-calls-in-half-open-state}") int permittedCallsInHalfOpenState) {
+
+    this.registry = registry;
+    this.slidingWindowSize = slidingWindowSize;
+    this.minimumCalls = minimumCalls;
+    this.failureRateThreshold = failureRateThreshold;
+    this.slowCallRateThreshold = slowCallRateThreshold;
+    this.slowCallDuration = slowCallDuration;
+    this.waitInOpenState = waitInOpenState;
+    this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+
+    LOG.info("Circuit breakers open at {}% failed or {}% slower than {} of the last {} calls, wait in open state: {}",
+      failureRateThreshold, slowCallRateThreshold, slowCallDuration, slidingWindowSize, waitInOpenState);
+  }
+
+  public CircuitBreaker circuitBreaker(String service) {
+    return new CircuitBreaker(service, registry, slidingWindowSize, minimumCalls, failureRateThreshold,
+      slowCallRateThreshold, slowCallDuration, waitInOpenState, permittedCallsInHalfOpenState, System::nanoTime);
+  }
+}
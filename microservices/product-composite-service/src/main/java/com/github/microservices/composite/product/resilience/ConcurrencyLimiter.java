@@ -0,0 +1,167 @@
+package com.github.microservices.composite.product.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import com.github.api.exceptions.InvalidInputException;
+import com.github.api.exceptions.NotFoundException;
+import com.github.api.exceptions.ServiceUnavailableException;
+
+/**
+ * Adaptive limit of the number of concurrent calls to a core service, without locks.
+ *
+ * The limit follows TCP Vegas: the queue building up at the service is estimated from the ratio between the shortest
+ * response time seen, i.e. without load, and the current response time. The limit grows while the estimated queue is
+ * short and shrinks when it gets long. Failed calls shrink the limit multiplicatively, as in AIMD. Calls above the limit
+ * are rejected immediately with a {@link ServiceUnavailableException} rather than queued.
+ */
+public class ConcurrencyLimiter {
+
+  private final int minimumLimit;
+  private final int maximumLimit;
+  private final double backoffRatio;
+  private final int probeInterval;
+  private final LongSupplier nanoTime;
+
+  private final AtomicInteger limit;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicLong noLoadRtt = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong samples = new AtomicLong();
+
+  private final Counter rejected;
+  private final ServiceUnavailableException rejection;
+
+  ConcurrencyLimiter(
+    String service,
+    MeterRegistry registry,
+    int initialLimit,
+    int minimumLimit,
+    int maximumLimit,
+    double backoffRatio,
+    int probeInterval,
+    LongSupplier nanoTime) {
+
+    this.rejection = ServiceUnavailableException.withoutStackTrace("The concurrency limit of the " + service + " service is reached");
+    this.minimumLimit = minimumLimit;
+    this.maximumLimit = maximumLimit;
+    this.backoffRatio = backoffRatio;
+    this.probeInterval = probeInterval;
+    this.nanoTime = nanoTime;
+    this.limit = new AtomicInteger(initialLimit);
+
+    rejected = Counter.builder("product-composite.concurrency.rejected")
+      .description("Calls rejected since the concurrency limit was reached")
+      .tag("service", service).register(registry);
+    Gauge.builder("product-composite.concurrency.limit", limit, AtomicInteger::get)
+      .description("Current limit of concurrent calls")
+      .tag("service", service).register(registry);
+    Gauge.builder("product-composite.concurrency.in-flight", inFlight, AtomicInteger::get)
+      .description("Calls in flight")
+      .tag("service", service).register(registry);
+  }
+
+  public <T> Mono<T> execute(Mono<T> call) {
+    return Mono.defer(() -> {
+      if (!tryAcquire()) {
+        return Mono.error(rejection());
+      }
+
+      long start = nanoTime.getAsLong();
+      AtomicInteger released = new AtomicInteger();
+      return call
+        .doOnSuccess(response -> release(released, start, false))
+        .doOnError(error -> release(released, start, !isIgnored(error)))
+        .doOnCancel(() -> release(released, -1, false));
+    });
+  }
+
+  public <T> Flux<T> execute(Flux<T> call) {
+    return Flux.defer(() -> {
+      if (!tryAcquire()) {
+        return Flux.error(rejection());
+      }
+
+      long start = nanoTime.getAsLong();
+      AtomicInteger released = new AtomicInteger();
+      return call
+        .doOnComplete(() -> release(released, start, false))
+        .doOnError(error -> release(released, start, !isIgnored(error)))
+        .doOnCancel(() -> release(released, -1, false));
+    });
+  }
+
+  int getLimit() {
+    return limit.get();
+  }
+
+  int getInFlight() {
+    return inFlight.get();
+  }
+
+  private ServiceUnavailableException rejection() {
+    rejected.increment();
+    // Rejections are frequent under overload, the same stackless exception is thrown for all of them
+    return rejection;
+  }
+
+  private boolean tryAcquire() {
+    int current;
+    do {
+      current = inFlight.get();
+      if (current >= limit.get()) {
+        return false;
+      }
+    } while (!inFlight.compareAndSet(current, current + 1));
+    return true;
+  }
+
+  /**
+   * @param start Start of the call, or -1 if the call was cancelled and its response time is unknown
+   */
+  private void release(AtomicInteger released, long start, boolean dropped) {
+    if (!released.compareAndSet(0, 1)) {
+      return;
+    }
+    int callsInFlight = inFlight.getAndDecrement();
+
+    if (dropped) {
+      limit.updateAndGet(current -> Math.max(minimumLimit, (int) (current * backoffRatio)));
+    } else if (start >= 0) {
+      adjust(nanoTime.getAsLong() - start, callsInFlight);
+    }
+  }
+
+  private void adjust(long rtt, int callsInFlight) {
+    // Probe for a new response time without load now and then, it changes with the service and its database
+    if (samples.incrementAndGet() % probeInterval == 0) {
+      noLoadRtt.set(rtt);
+    }
+    long minRtt = noLoadRtt.accumulateAndGet(Math.max(1, rtt), Math::min);
+
+    limit.updateAndGet(current -> {
+      // The limit is not used, its response times say nothing about it
+      if (callsInFlight * 2 < current) {
+        return current;
+      }
+
+      double log = Math.max(1, Math.log10(current));
+      double queue = current * (1 - (double) minRtt / Math.max(rtt, minRtt));
+      if (queue < 3 * log) {
+        return Math.min(maximumLimit, current + (int) log);
+      }
+      if (queue > 6 * log) {
+        return Math.max(minimumLimit, current - (int) log);
+      }
+      return current;
+    });
+  }
+
+  private static boolean isIgnored(Throwable error) {
+    return error instanceof NotFoundException || error instanceof InvalidInputException;
+  }
+}
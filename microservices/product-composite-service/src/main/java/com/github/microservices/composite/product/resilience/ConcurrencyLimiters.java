@@ -0,0 +1,48 @@
+package com.github.microservices.composite.product.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the concurrency limiters of the core services, each with its own limit.
+ */
+@Component
+public class ConcurrencyLimiters {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConcurrencyLimiters.class);
+
+  private final MeterRegistry registry;
+  private final int initialLimit;
+  private final int minimumLimit;
+  private final int maximumLimit;
+  private final double backoffRatio;
+  private final int probeInterval;
+
+  @Autowired
+  public ConcurrencyLimiters(
+    MeterRegistry registry,
+    @Value("${app.product-composite.concurrency-limit.initial-limit}") int initialLimit,
+    @Value("${app.product-composite.concurrency-limit.minimum-limit}") int minimumLimit,
+    @Value("${app.product-composite.concurrency-limit.maximum-limit}") int maximumLimit,
+    @Value("${app.product-composite.concurrency-limit.backoff-ratio}") double backoffRatio,
+    @Value("${app.product-composite.concurrency-limit.probe-interval}") int probeInterval) {
+
+    this.registry = registry;
+    this.initialLimit = initialLimit;
+    this.minimumLimit = minimumLimit;
+    this.maximumLimit = maximumLimit;
+    this.backoffRatio = backoffRatio;
+    this.probeInterval = probeInterval;
+
+    LOG.info("Concurrency limits start at {} and adapt between {} and {}", initialLimit, minimumLimit, maximumLimit);
+  }
+
+  public ConcurrencyLimiter limiter(String service) {
+    return new ConcurrencyLimiter(service, registry, initialLimit, minimumLimit, maximumLimit, backoffRatio,
+      probeInterval, System::nanoTime);
+  }
+}
@@ -0,0 +1,103 @@
+package com.github.microservices.composite.product.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.function.Supplier;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hedges idempotent calls to a core service.
+ *
+ * If a call has not responded within a percentile of the recent response times of the service, a second call is made
+ * and the first response, or error, wins while the other call is cancelled. Hedges are limited by a token bucket so
+ * they can only add a fixed fraction of extra load to the service.
+ */
+public class Hedger {
+
+  private final boolean enabled;
+  private final Duration minimumDelay;
+  private final Duration initialDelay;
+  private final LatencyTracker latencies;
+  private final TokenBucket budget;
+
+  private final Counter calls;
+  private final Counter hedges;
+  private final Counter wins;
+  private final Counter rejected;
+
+  Hedger(
+    String service,
+    MeterRegistry registry,
+    boolean enabled,
+    double percentile,
+    Duration minimumDelay,
+    Duration initialDelay,
+    TokenBucket budget) {
+
+    this.enabled = enabled;
+    this.minimumDelay = minimumDelay;
+    this.initialDelay = initialDelay;
+    this.latencies = new LatencyTracker(1024, percentile, 100, 32);
+    this.budget = budget;
+
+    calls = Counter.builder("product-composite.hedge.calls")
+      .description("Calls that could be hedged")
+      .tag("service", service).register(registry);
+    hedges = Counter.builder("product-composite.hedge.hedges")
+      .description("Hedges sent since a call did not respond within the hedge delay")
+      .tag("service", service).register(registry);
+    wins = Counter.builder("product-composite.hedge.wins")
+      .description("Hedges that responded before the call they hedged")
+      .tag("service", service).register(registry);
+    rejected = Counter.builder("product-composite.hedge.rejected")
+      .description("Hedges not sent since the hedge budget was exhausted")
+      .tag("service", service).register(registry);
+    Gauge.builder("product-composite.hedge.delay", this, hedger -> hedger.delay().toNanos() / 1e9)
+      .description("Current hedge delay")
+      .baseUnit("seconds")
+      .tag("service", service).register(registry);
+  }
+
+  /**
+   * @param call Creates a call to the service, invoked once for the call and once more for a hedge
+   * @return the response of the call or of its hedge, whichever signals first
+   */
+  public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+    if (!enabled) {
+      return timed(call.get());
+    }
+
+    return Mono.defer(() -> {
+      calls.increment();
+      budget.deposit();
+
+      Mono<T> hedge = Mono.delay(delay()).flatMap(tick -> {
+        if (!budget.tryWithdraw()) {
+          rejected.increment();
+          return Mono.never();
+        }
+        hedges.increment();
+        return timed(call.get()).doOnSuccess(response -> wins.increment());
+      });
+
+      return Mono.firstWithSignal(timed(call.get()), hedge);
+    });
+  }
+
+  private <T> Mono<T> timed(Mono<T> call) {
+    return Mono.defer(() -> {
+      long start = System.nanoTime();
+      return call.doOnSuccess(response -> latencies.record(System.nanoTime() - start));
+    });
+  }
+
+  Duration delay() {
+    long percentileNanos = latencies.percentileNanos();
+    if (percentileNanos < 0) {
+      return initialDelay;
+    }
+    return percentileNanos < minimumDelay.toNanos() ? minimumDelay : Duration.ofNanos(percentileNanos);
+  }
+}
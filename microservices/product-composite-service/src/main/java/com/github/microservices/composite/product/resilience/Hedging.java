@@ -0,0 +1,53 @@
+package com.github.microservices.composite.product.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the hedgers of the core services, each with its own response times and hedge budget.
+ */
+@Component
+public class Hedging {
+
+  private static final Logger LOG = LoggerFactory.getLogger(Hedging.class);
+
+  private final MeterRegistry registry;
+  private final boolean enabled;
+  private final double percentile;
+  private final Duration minimumDelay;
+  private final Duration initialDelay;
+  private final double budgetRatio;
+  private final int budgetBurst;
+
+  @Autowired
+  public Hedging(
+    MeterRegistry registry,
+    @Value("${app.product-composite.hedging.enabled}") boolean enabled,
+    @Value("${app.product-composite.hedging.percentile}") double percentile,
+    @Value("${app.product-composite.hedging.minimum-delay}") Duration minimumDelay,
+    @Value("${app.product-composite.hedging.initial-delay}") Duration initialDelay,
+    @Value("${app.product-composite.hedging.budget-ratio}") double budgetRatio,
+    @Value("${app.product-composite.hedging.budget-burst}") int budgetBurst) {
+
+    this.registry = registry;
+    this.enabled = enabled;
+    this.percentile = percentile;
+    this.minimumDelay = minimumDelay;
+    this.initialDelay = initialDelay;
+    this.budgetRatio = budgetRatio;
+    this.budgetBurst = budgetBurst;
+
+    LOG.info("Hedging enabled: {}, after the p{} response time, at least {}, at most {} of the calls",
+      enabled, percentile, minimumDelay, budgetRatio);
+  }
+
+  public Hedger hedger(String service) {
+    return new Hedger(service, registry, enabled, percentile, minimumDelay, initialDelay,
+      new TokenBucket(budgetRatio, budgetBurst));
+  }
+}
@@ -0,0 +1,55 @@
+package com.github.microservices.composite.product.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Percentile of the most recent response times of a core service.
+ *
+ * Samples are written to a ring buffer without locking and the percentile is recomputed from a copy of the buffer
+ * once every {@code recomputeEvery} samples, so reading it is just a volatile read.
+ */
+class LatencyTracker {
+
+  private final AtomicLongArray samples;
+  private final AtomicLong count = new AtomicLong();
+  private final double percentile;
+  private final int minimumSamples;
+  private final int recomputeEvery;
+
+  private volatile long percentileNanos = -1;
+
+  LatencyTracker(int size, double percentile, int minimumSamples, int recomputeEvery) {
+    this.samples = new AtomicLongArray(size);
+    this.percentile = percentile;
+    this.minimumSamples = minimumSamples;
+    this.recomputeEvery = recomputeEvery;
+  }
+
+  void record(long nanos) {
+    long n = count.getAndIncrement();
+    samples.set((int) (n % samples.length()), nanos);
+    if (n + 1 >= minimumSamples && (n + 1) % recomputeEvery == 0) {
+      recompute();
+    }
+  }
+
+  /**
+   * @return the percentile in nanoseconds, or -1 until enough samples have been recorded
+   */
+  long percentileNanos() {
+    return percentileNanos;
+  }
+
+  private void recompute() {
+    int n = (int) Math.min(count.get(), samples.length());
+    long[] copy = new long[n];
+    for (int i = 0; i < n; i++) {
+      copy[i] = samples.get(i);
+    }
+    Arrays.sort(copy);
+    int index = (int) Math.ceil(percentile / 100 * n) - 1;
+    percentileNanos = copy[Math.max(0, Math.min(n - 1, index))];
+  }
+}
@@ -0,0 +1,316 @@
+package com.github.microservices.composite.product.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import com.github.api.exceptions.InvalidInputException;
+import com.github.api.exceptions.NotFoundException;
+
+/**
+ * Balances the calls to a core service over its instances.
+ *
+ * Each call goes to the less loaded of two randomly picked instances (power of two choices), the load of an instance
+ * being its number of calls in flight and ties going to the faster one. A hedge, sent while the call it hedges is still
+ * in flight, therefore goes to another instance unless all others are busier.
+ *
+ * The failure rate and the response time of each instance are tracked as exponentially weighted moving averages. An
+ * instance that fails too often, or responds a number of times slower than the median instance, is ejected and gets no
+ * calls for a while. The ejection time grows each time the instance is ejected again and at most a percentage of the
+ * instances is ejected at a time. Not found and invalid input errors are responses of a healthy instance.
+ */
+public class LoadBalancer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LoadBalancer.class);
+
+  private enum Outcome { SUCCESS, FAILURE, CANCELLED }
+
+  private final String service;
+  private final MeterRegistry registry;
+  private final double weight;
+  private final int minimumCalls;
+  private final int failureRateThreshold;
+  private final double latencyFactor;
+  private final long baseEjectionNanos;
+  private final long maximumEjectionNanos;
+  private final int maximumEjectionPercent;
+  private final LongSupplier nanoTime;
+
+  private volatile List<Instance> instances = new ArrayList<>();
+
+  LoadBalancer(
+    String service,
+    MeterRegistry registry,
+    double weight,
+    int minimumCalls,
+    int failureRateThreshold,
+    double latencyFactor,
+    Duration baseEjectionTime,
+    Duration maximumEjectionTime,
+    int maximumEjectionPercent,
+    LongSupplier nanoTime) {
+
+    this.service = service;
+    this.registry = registry;
+    this.weight = weight;
+    this.minimumCalls = minimumCalls;
+    this.failureRateThreshold = failureRateThreshold;
+    this.latencyFactor = latencyFactor;
+    this.baseEjectionNanos = baseEjectionTime.toNanos();
+    this.maximumEjectionNanos = maximumEjectionTime.toNanos();
+    this.maximumEjectionPercent = maximumEjectionPercent;
+    this.nanoTime = nanoTime;
+  }
+
+  /**
+   * @param call Makes the call to an instance, given its base URL, e.g. "http://10.0.0.5:8080"
+   */
+  public <T> Mono<T> execute(Function<String, Mono<T>> call) {
+    return Mono.defer(() -> {
+      Instance instance = choose();
+      instance.outstanding.incrementAndGet();
+      long start = nanoTime.getAsLong();
+      return call.apply(instance.baseUrl)
+        .doOnSuccess(response -> record(instance, start, Outcome.SUCCESS))
+        .doOnError(error -> record(instance, start, isIgnored(error) ? Outcome.SUCCESS : Outcome.FAILURE))
+        // A cancelled call, e.g. a hedge that lost, only counts with the time it took so far
+        .doOnCancel(() -> record(instance, start, Outcome.CANCELLED))
+        .doFinally(signal -> instance.outstanding.decrementAndGet());
+    });
+  }
+
+  /**
+   * @param call Makes the call to an instance, given its base URL
+   */
+  public <T> Flux<T> executeMany(Function<String, Flux<T>> call) {
+    return Flux.defer(() -> {
+      Instance instance = choose();
+      instance.outstanding.incrementAndGet();
+      long start = nanoTime.getAsLong();
+      return call.apply(instance.baseUrl)
+        .doOnComplete(() -> record(instance, start, Outcome.SUCCESS))
+        .doOnError(error -> record(instance, start, isIgnored(error) ? Outcome.SUCCESS : Outcome.FAILURE))
+        .doOnCancel(() -> record(instance, start, Outcome.CANCELLED))
+        .doFinally(signal -> instance.outstanding.decrementAndGet());
+    });
+  }
+
+  /**
+   * Replaces the instances, e.g. after their host names were resolved again. Instances that remain keep their state.
+   *
+   * @param addresses host:port of each instance
+   */
+  synchronized void update(List<String> addresses) {
+    Map<String, Instance> current = new HashMap<>();
+    instances.forEach(instance -> current.put(instance.address, instance));
+
+    List<Instance> updated = new ArrayList<>();
+    for (String address : addresses) {
+      Instance instance = current.remove(address);
+      updated.add(instance != null ? instance : new Instance(address));
+    }
+    if (updated.isEmpty()) {
+      LOG.warn("No instances of the {} service, keeps the current instances", service);
+      return;
+    }
+
+    current.values().forEach(Instance::remove);
+    if (!current.isEmpty() || updated.size() != instances.size()) {
+      LOG.info("Instances of the {} service: {}", service, addresses);
+    }
+    instances = updated;
+  }
+
+  List<String> getAddresses() {
+    List<String> addresses = new ArrayList<>();
+    instances.forEach(instance -> addresses.add(instance.address));
+    return addresses;
+  }
+
+  boolean isEjected(String address) {
+    long now = nanoTime.getAsLong();
+    return instances.stream().anyMatch(instance -> instance.address.equals(address) && instance.isEjected(now));
+  }
+
+  private Instance choose() {
+    List<Instance> all = instances;
+    if (all.size() == 1) {
+      return all.get(0);
+    }
+
+    long now = nanoTime.getAsLong();
+    Instance first = pick(all, null, now);
+    Instance second = pick(all, first, now);
+    int load = Integer.compare(first.outstanding.get(), second.outstanding.get());
+    if (load != 0) {
+      return load < 0 ? first : second;
+    }
+    return first.latencyNanos <= second.latencyNanos ? first : second;
+  }
+
+  /**
+   * Picks a random instance that is not ejected and not the excluded one, a few tries are made before settling for any
+   * other instance.
+   */
+  private static Instance pick(List<Instance> all, Instance excluded, long now) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    Instance candidate = null;
+    for (int i = 0; i < all.size(); i++) {
+      candidate = all.get(random.nextInt(all.size()));
+      if (candidate != excluded && !candidate.isEjected(now)) {
+        return candidate;
+      }
+    }
+    while (candidate == excluded) {
+      candidate = all.get(random.nextInt(all.size()));
+    }
+    return candidate;
+  }
+
+  private void record(Instance instance, long start, Outcome outcome) {
+    long now = nanoTime.getAsLong();
+    if (outcome != Outcome.CANCELLED) {
+      (outcome == Outcome.FAILURE ? instance.failures : instance.successes).increment();
+    }
+
+    boolean outlier;
+    synchronized (instance) {
+      long elapsed = now - start;
+      if (outcome == Outcome.CANCELLED) {
+        // Neither a success nor a failure, the time it took so far can only raise the response time
+        if (instance.calls == 0 || elapsed <= instance.latencyNanos) {
+          return;
+        }
+        instance.latencyNanos += weight * (elapsed - instance.latencyNanos);
+      } else {
+        instance.failureRate += weight * ((outcome == Outcome.FAILURE ? 100 : 0) - instance.failureRate);
+        instance.latencyNanos = instance.calls == 0 ? elapsed : instance.latencyNanos + weight * (elapsed - instance.latencyNanos);
+        instance.calls++;
+      }
+
+      if (instance.calls < minimumCalls || instance.isEjected(now)) {
+        return;
+      }
+      outlier = instance.failureRate >= failureRateThreshold || instance.latencyNanos > latencyFactor * medianLatency(now);
+      if (!outlier) {
+        // The instance proved healthy, its next ejection starts from the base ejection time again
+        instance.ejections = 0;
+      }
+    }
+
+    if (outlier) {
+      eject(instance, now);
+    }
+  }
+
+  private synchronized void eject(Instance instance, long now) {
+    List<Instance> all = instances;
+    long ejected = all.stream().filter(i -> i.isEjected(now)).count();
+    if (instance.isEjected(now) || (ejected + 1) * 100 > (long) maximumEjectionPercent * all.size()) {
+      return;
+    }
+
+    synchronized (instance) {
+      instance.ejections++;
+      long ejectionNanos = Math.min(baseEjectionNanos * instance.ejections, maximumEjectionNanos);
+      instance.ejectedUntil = now + ejectionNanos;
+      LOG.warn("Ejects instance {} of the {} service for {} ms, failure rate: {}%, response time: {} ms",
+        instance.address, service, ejectionNanos / 1_000_000, Math.round(instance.failureRate),
+        Math.round(instance.latencyNanos / 1e6));
+
+      // The instance starts over when it returns
+      instance.calls = 0;
+      instance.failureRate = 0;
+    }
+    instance.ejectionCounter.increment();
+  }
+
+  /**
+   * @return the median response time of the instances that are not ejected and have enough calls to tell
+   */
+  private double medianLatency(long now) {
+    double[] latencies = instances.stream()
+      .filter(instance -> !instance.isEjected(now) && instance.calls >= minimumCalls)
+      .mapToDouble(instance -> instance.latencyNanos)
+      .toArray();
+    if (latencies.length < 2) {
+      return Double.MAX_VALUE;
+    }
+    Arrays.sort(latencies);
+    return latencies[latencies.length / 2];
+  }
+
+  private static boolean isIgnored(Throwable error) {
+    return error instanceof NotFoundException || error instanceof InvalidInputException;
+  }
+
+  private class Instance {
+    private final String address;
+    private final String baseUrl;
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    // Updated while holding the lock of the instance, the volatile ones are also read without it
+    private volatile long calls;
+    private double failureRate;
+    private volatile double latencyNanos;
+    private int ejections;
+
+    private volatile long ejectedUntil;
+
+    private final Counter successes;
+    private final Counter failures;
+    private final Counter ejectionCounter;
+    private final List<Meter> meters = new ArrayList<>();
+
+    Instance(String address) {
+      this.address = address;
+      this.baseUrl = "http://" + address;
+      this.ejectedUntil = nanoTime.getAsLong();
+
+      successes = Counter.builder("product-composite.load-balancer.calls")
+        .description("Calls to an instance, by outcome")
+        .tags("service", service, "instance", address, "outcome", "success").register(registry);
+      failures = Counter.builder("product-composite.load-balancer.calls")
+        .description("Calls to an instance, by outcome")
+        .tags("service", service, "instance", address, "outcome", "failure").register(registry);
+      ejectionCounter = Counter.builder("product-composite.load-balancer.ejections")
+        .description("Times an instance was ejected as an outlier")
+        .tags("service", service, "instance", address).register(registry);
+      meters.add(successes);
+      meters.add(failures);
+      meters.add(ejectionCounter);
+      meters.add(Gauge.builder("product-composite.load-balancer.outstanding", outstanding, AtomicInteger::get)
+        .description("Calls in flight to an instance")
+        .tags("service", service, "instance", address).register(registry));
+      meters.add(Gauge.builder("product-composite.load-balancer.response-time", this, instance -> instance.latencyNanos / 1e9)
+        .description("Moving average of the response times of an instance")
+        .baseUnit("seconds")
+        .tags("service", service, "instance", address).register(registry));
+      meters.add(Gauge.builder("product-composite.load-balancer.ejected", this, instance -> instance.isEjected(nanoTime.getAsLong()) ? 1 : 0)
+        .description("1 while an instance is ejected, else 0")
+        .tags("service", service, "instance", address).register(registry));
+    }
+
+    boolean isEjected(long now) {
+      return now - ejectedUntil < 0;
+    }
+
+    void remove() {
+      meters.forEach(registry::remove);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+package com.github.microservices.composite.product.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Creates the load balancers of the core services, each over its own instances.
+ *
+ * The host names of the instances are resolved when the load balancer is created and again at the DNS refresh
+ * interval, in between calls go straight to the resolved addresses. A host name that resolves to several addresses,
+ * e.g. a scaled Docker Compose service, contributes an instance per address.
+ */
+@Component
+public class LoadBalancers {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LoadBalancers.class);
+
+  private final MeterRegistry registry;
+  private final double weight;
+  private final int minimumCalls;
+  private final int failureRateThreshold;
+  private final double latencyFactor;
+  private final Duration baseEjectionTime;
+  private final Duration maximumEjectionTime;
+  private final int maximumEjectionPercent;
+  private final Duration dnsRefreshInterval;
+
+  private final Disposable.Composite refreshes = Disposables.composite();
+
+  @Autowired
+  public LoadBalancers(
+    MeterRegistry registry,
+    @Value("${app.product-composite.load-balancer.weight}") double weight,
+    @Value("${app.product-composite.load-balancer.minimum-calls}") int minimumCalls,
+    @Value("${app.product-composite.load-balancer.failure-rate-threshold}") int failureRateThreshold,
+    @Value("${app.product-composite.load-balancer.latency-factor}") double latencyFactor,
+    @Value("${app.product-composite.load-balancer.base-ejection-time}") Duration baseEjectionTime,
+    @Value("${app.product-composite.load-balancer.maximum-ejection-time}") Duration maximumEjectionTime,
+    @Value("${app.product-composite.load-balancer.maximum-ejection-percent}") int maximumEjectionPercent,
+    @Value("${app.product-composite.load-balancer.dns-refresh-interval}") Duration dnsRefreshInterval) {
+
+    this.registry = registry;
+    this.weight = weight;
+    this.minimumCalls = minimumCalls;
+    this.failureRateThreshold = failureRateThreshold;
+    this.latencyFactor = latencyFactor;
+    this.baseEjectionTime = baseEjectionTime;
+    this.maximumEjectionTime = maximumEjectionTime;
+    this.maximumEjectionPercent = maximumEjectionPercent;
+    this.dnsRefreshInterval = dnsRefreshInterval;
+
+    LOG.info("Load balancers eject instances at {}% failed calls or {} times the median response time, for {} to {}, "
+      + "at most {}% of the instances, DNS refresh interval: {}", failureRateThreshold, latencyFactor, baseEjectionTime,
+      maximumEjectionTime, maximumEjectionPercent, dnsRefreshInterval);
+  }
+
+  /**
+   * @param instances Comma separated host:port of the instances of the service
+   */
+  public LoadBalancer loadBalancer(String service, String instances) {
+    List<String> hosts = new ArrayList<>();
+    for (String instance : instances.split(",")) {
+      if (instance.trim().isEmpty()) {
+        continue;
+      }
+      if (instance.lastIndexOf(':') < 1) {
+        throw new IllegalArgumentException("Invalid instance of the " + service + " service: " + instance.trim() + ", expected host:port");
+      }
+      hosts.add(instance.trim());
+    }
+    if (hosts.isEmpty()) {
+      throw new IllegalArgumentException("No instances configured for the " + service + " service");
+    }
+
+    LoadBalancer loadBalancer = new LoadBalancer(service, registry, weight, minimumCalls, failureRateThreshold,
+      latencyFactor, baseEjectionTime, maximumEjectionTime, maximumEjectionPercent, System::nanoTime);
+    loadBalancer.update(resolve(hosts));
+
+    refreshes.add(Flux.interval(dnsRefreshInterval, dnsRefreshInterval, Schedulers.boundedElastic())
+      .subscribe(tick -> loadBalancer.update(resolve(hosts))));
+    return loadBalancer;
+  }
+
+  @PreDestroy
+  void stopRefreshes() {
+    refreshes.dispose();
+  }
+
+  /**
+   * A host that cannot be resolved is kept as it is, it is resolved again when it is connected to.
+   */
+  static List<String> resolve(List<String> hosts) {
+    List<String> addresses = new ArrayList<>();
+    for (String hostAndPort : hosts) {
+      int separator = hostAndPort.lastIndexOf(':');
+      String host = hostAndPort.substring(0, separator);
+      String port = hostAndPort.substring(separator + 1);
+      try {
+        for (InetAddress address : InetAddress.getAllByName(host)) {
+          String ip = address.getHostAddress();
+          addresses.add((address instanceof Inet6Address ? "[" + ip + "]" : ip) + ":" + port);
+        }
+      } catch (UnknownHostException ex) {
+        LOG.warn("Failed to resolve {}: {}", host, ex.toString());
+        addresses.add(hostAndPort);
+      }
+    }
+    return addresses;
+  }
+}
@@ -0,0 +1,136 @@
+package com.github.microservices.composite.product.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Retries idempotent calls to a core service that failed transiently.
+ *
+ * A call is retried if it failed to connect or to be sent, or was answered with 502, 503 or 504, e.g. while an instance
+ * is being redeployed. Retries wait an exponentially growing, jittered, backoff and are limited by a token bucket so
+ * they can only add a fixed fraction of extra load to the service, a service that keeps failing is not retried into
+ * the ground. The error of the last attempt is the one returned.
+ */
+public class Retrier {
+
+  private final int maximumRetries;
+  private final Duration firstBackoff;
+  private final Duration maximumBackoff;
+  private final double jitter;
+  private final TokenBucket budget;
+
+  private final Counter retries;
+  private final Counter denied;
+  private final Counter succeeded;
+
+  Retrier(
+    String service,
+    MeterRegistry registry,
+    int maximumAttempts,
+    Duration firstBackoff,
+    Duration maximumBackoff,
+    double jitter,
+    TokenBucket budget) {
+
+    this.maximumRetries = maximumAttempts - 1;
+    this.firstBackoff = firstBackoff;
+    this.maximumBackoff = maximumBackoff;
+    this.jitter = jitter;
+    this.budget = budget;
+
+    retries = Counter.builder("product-composite.retry.retries")
+      .description("Retries of calls that failed transiently")
+      .tag("service", service).register(registry);
+    denied = Counter.builder("product-composite.retry.denied")
+      .description("Retries not made since the retry budget was exhausted")
+      .tag("service", service).register(registry);
+    succeeded = Counter.builder("product-composite.retry.succeeded")
+      .description("Calls that succeeded after being retried")
+      .tag("service", service).register(registry);
+    Gauge.builder("product-composite.retry.budget", budget, TokenBucket::available)
+      .description("Retries currently allowed by the retry budget")
+      .tag("service", service).register(registry);
+  }
+
+  /**
+   * @param call Makes the call when subscribed to, it is subscribed to again for each retry
+   */
+  public <T> Mono<T> execute(Mono<T> call) {
+    if (maximumRetries < 1) {
+      return call;
+    }
+    return Mono.defer(() -> {
+      budget.deposit();
+      AtomicInteger attempts = new AtomicInteger();
+      return call
+        .retryWhen(retry(error -> true, attempts))
+        .doOnSuccess(response -> countSuccess(attempts));
+    });
+  }
+
+  /**
+   * A call that already emitted elements is not retried, the elements would be emitted twice.
+   *
+   * @param call Makes the call when subscribed to, it is subscribed to again for each retry
+   */
+  public <T> Flux<T> executeMany(Flux<T> call) {
+    if (maximumRetries < 1) {
+      return call;
+    }
+    return Flux.defer(() -> {
+      budget.deposit();
+      AtomicInteger attempts = new AtomicInteger();
+      AtomicBoolean emitted = new AtomicBoolean();
+      return call
+        .doOnNext(element -> emitted.set(true))
+        .retryWhen(retry(error -> !emitted.get(), attempts))
+        .doOnComplete(() -> countSuccess(attempts));
+    });
+  }
+
+  private Retry retry(Predicate<Throwable> retryable, AtomicInteger attempts) {
+    return Retry.backoff(maximumRetries, firstBackoff)
+      .maxBackoff(maximumBackoff)
+      .jitter(jitter)
+      // The budget is only withdrawn from when a retry remains to be made
+      .filter(error -> retryable.test(error) && isTransient(error) && attempts.get() < maximumRetries && withdraw())
+      .doBeforeRetry(signal -> attempts.incrementAndGet())
+      .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+  }
+
+  private boolean withdraw() {
+    if (!budget.tryWithdraw()) {
+      denied.increment();
+      return false;
+    }
+    retries.increment();
+    return true;
+  }
+
+  private void countSuccess(AtomicInteger attempts) {
+    if (attempts.get() > 0) {
+      succeeded.increment();
+    }
+  }
+
+  private static boolean isTransient(Throwable error) {
+    if (error instanceof WebClientRequestException) {
+      return true;
+    }
+    if (error instanceof WebClientResponseException) {
+      int status = ((WebClientResponseException) error).getRawStatusCode();
+      return status == 502 || status == 503 || status == 504;
+    }
+    return false;
+  }
+}
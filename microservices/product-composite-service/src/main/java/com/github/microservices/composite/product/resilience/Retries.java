@@ -0,0 +1,53 @@
+package com.github.microservices.composite.product.resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the retriers of the core services, each with its own retry budget.
+ */
+@Component
+public class Retries {
+
+  private static final Logger LOG = LoggerFactory.getLogger(Retries.class);
+
+  private final MeterRegistry registry;
+  private final int maximumAttempts;
+  private final Duration firstBackoff;
+  private final Duration maximumBackoff;
+  private final double jitter;
+  private final double budgetRatio;
+  private final int budgetBurst;
+
+  @Autowired
+  public Retries(
+    MeterRegistry registry,
+    @Value("${app.product-composite.retry.maximum-attempts}") int maximumAttempts,
+    @Value("${app.product-composite.retry.first-backoff}") Duration firstBackoff,
+    @Value("${app.product-composite.retry.maximum-backoff}") Duration maximumBackoff,
+    @Value("${app.product-composite.retry.jitter}") double jitter,
+    @Value("${app.product-composite.retry.budget-ratio}") double budgetRatio,
+    @Value("${app.product-composite.retry.budget-burst}") int budgetBurst) {
+
+    this.registry = registry;
+    this.maximumAttempts = maximumAttempts;
+    this.firstBackoff = firstBackoff;
+    this.maximumBackoff = maximumBackoff;
+    this.jitter = jitter;
+    this.budgetRatio = budgetRatio;
+    this.budgetBurst = budgetBurst;
+
+    LOG.info("Retrying lookups up to {} attempts, backoff from {} to {}, at most {} of the calls",
+      maximumAttempts, firstBackoff, maximumBackoff, budgetRatio);
+  }
+
+  public Retrier retrier(String service) {
+    return new Retrier(service, registry, maximumAttempts, firstBackoff, maximumBackoff, jitter,
+      new TokenBucket(budgetRatio, budgetBurst));
+  }
+}
@@ -0,0 +1,43 @@
+package com.github.microservices.composite.product.resilience;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free budget for extra calls, such as hedges and retries, relative to the number of regular calls.
+ *
+ * Every regular call deposits a fraction of a token and every extra call withdraws a whole token, i.e. a ratio of 0.1
+ * allows one extra call per ten regular calls. The bucket holds at most a burst of tokens and starts full.
+ */
+public class TokenBucket {
+
+  private static final long SCALE = 1000;
+
+  private final long maximumTokens;
+  private final long depositPerCall;
+  private final AtomicLong tokens;
+
+  public TokenBucket(double ratio, int burst) {
+    this.maximumTokens = burst * SCALE;
+    this.depositPerCall = Math.round(ratio * SCALE);
+    this.tokens = new AtomicLong(maximumTokens);
+  }
+
+  public void deposit() {
+    tokens.accumulateAndGet(depositPerCall, (current, deposit) -> Math.min(maximumTokens, current + deposit));
+  }
+
+  public boolean tryWithdraw() {
+    long current;
+    do {
+      current = tokens.get();
+      if (current < SCALE) {
+        return false;
+      }
+    } while (!tokens.compareAndSet(current, current - SCALE));
+    return true;
+  }
+
+  public double available() {
+    return (double) tokens.get() / SCALE;
+  }
+}
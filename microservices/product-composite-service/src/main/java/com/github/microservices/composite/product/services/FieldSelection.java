@@ -0,0 +1,117 @@
+package com.github.microservices.composite.product.services;
+
+import com.github.api.composite.product.ProductAggregate;
+import com.github.api.exceptions.InvalidInputException;
+
+/**
+ * Fields of a product aggregate requested by a client, the product id is always included.
+ */
+class FieldSelection {
+
+  static final FieldSelection ALL = new FieldSelection(true, true, true, true, true);
+
+  private final boolean name;
+  private final boolean weight;
+  private final boolean recommendations;
+  private final boolean reviews;
+  private final boolean serviceAddresses;
+
+  private FieldSelection(boolean name, boolean weight, boolean recommendations, boolean reviews, boolean serviceAddresses) {
+    this.name = name;
+    this.weight = weight;
+    this.recommendations = recommendations;
+    this.reviews = reviews;
+    this.serviceAddresses = serviceAddresses;
+  }
+
+  /**
+   * @param fields Comma separated field names, all fields if null or blank
+   */
+  static FieldSelection parse(String fields) {
+    if (fields == null || fields.trim().isEmpty()) {
+      return ALL;
+    }
+
+    boolean name = false;
+    boolean weight = false;
+    boolean recommendations = false;
+    boolean reviews = false;
+    boolean serviceAddresses = false;
+
+    for (String field : fields.split(",")) {
+      switch (field.trim()) {
+        case "productId":
+          break;
+        case "name":
+          name = true;
+          break;
+        case "weight":
+          weight = true;
+          break;
+        case "recommendations":
+          recommendations = true;
+          break;
+        case "reviews":
+          reviews = true;
+          break;
+        case "serviceAddresses":
+          serviceAddresses = true;
+          break;
+        default:
+          throw InvalidInputException.withoutStackTrace("Invalid field: " + field.trim()
+            + ", expected productId, name, weight, recommendations, reviews or serviceAddresses");
+      }
+    }
+    return new FieldSelection(name, weight, recommendations, reviews, serviceAddresses);
+  }
+
+  boolean isAll() {
+    return name && weight && recommendations && reviews && serviceAddresses;
+  }
+
+  boolean name() {
+    return name;
+  }
+
+  boolean weight() {
+    return weight;
+  }
+
+  boolean recommendations() {
+    return recommendations;
+  }
+
+  boolean reviews() {
+    return reviews;
+  }
+
+  boolean serviceAddresses() {
+    return serviceAddresses;
+  }
+
+  /**
+   * @return the selected fields as bits, equal selections have equal bits
+   */
+  int bits() {
+    return (name ? 1 : 0) | (weight ? 2 : 0) | (recommendations ? 4 : 0) | (reviews ? 8 : 0) | (serviceAddresses ? 16 : 0);
+  }
+
+  /**
+   * @return a copy of the aggregate with the fields that are not selected left out
+   */
+  ProductAggregate project(ProductAggregate aggregate) {
+    if (isAll()) {
+      return aggregate;
+    }
+    return new ProductAggregate(
+      aggregate.getProductId(),
+      name ? aggregate.getName() : null,
+      weight ? aggregate.getWeight() : 0,
+      recommendations ? aggregate.getRecommendations() : null,
+      recommendations ? aggregate.getRecommendationsCursor() : null,
+      reviews ? aggregate.getReviews() : null,
+      reviews ? aggregate.getReviewsCursor() : null,
+      serviceAddresses ? aggregate.getServiceAddresses() : null,
+      aggregate.isStale());
+  }
+}
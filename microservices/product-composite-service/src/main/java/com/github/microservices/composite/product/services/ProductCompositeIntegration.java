@@ -1,215 +1,368 @@
 package com.github.microservices.composite.product.services;
 
-import static org.springframework.http.HttpMethod.GET;
-
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static reactor.core.publisher.Flux.empty;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import com.github.api.core.BatchResult;
 import com.github.api.core.product.Product;
-import com.github.api.core.product.ProductService;
 import com.github.api.core.recommendation.Recommendation;
-import com.github.api.core.recommendation.RecommendationService;
 import com.github.api.core.review.Review;
-import com.github.api.core.review.ReviewService;
 import com.github.api.exceptions.InvalidInputException;
 import com.github.api.exceptions.NotFoundException;
+import com.github.microservices.composite.product.resilience.CircuitBreaker;
+import com.github.microservices.composite.product.resilience.CircuitBreakers;
+import com.github.microservices.composite.product.resilience.ConcurrencyLimiter;
+import com.github.microservices.composite.product.resilience.ConcurrencyLimiters;
+import com.github.microservices.composite.product.resilience.Hedger;
+import com.github.microservices.composite.product.resilience.Hedging;
+import com.github.microservices.composite.product.resilience.LoadBalancer;
+import com.github.microservices.composite.product.resilience.LoadBalancers;
+import com.github.microservices.composite.product.resilience.Retrier;
+import com.github.microservices.composite.product.resilience.Retries;
 import com.github.util.http.HttpErrorInfo;
 
 @Component
-public class ProductCompositeIntegration implements ProductService, RecommendationService, ReviewService {
+public class ProductCompositeIntegration {
 
   private static final Logger LOG = LoggerFactory.getLogger(ProductCompositeIntegration.class);
 
-  private final RestTemplate restTemplate;
+  private static final String PRODUCT_PATH = "/product";
+  private static final String RECOMMENDATION_PATH = "/recommendation";
+  private static final String REVIEW_PATH = "/review";
+
+  private static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+  private final WebClient webClient;
   private final ObjectMapper mapper;
+  private final ObjectMapper smileMapper;
+  private final MediaType coreMediaType;
+
+  private final LoadBalancer productBalancer;
+  private final LoadBalancer recommendationBalancer;
+  private final LoadBalancer reviewBalancer;
+
+  private final SingleFlight<Integer, Tagged<Product>> productCalls = new SingleFlight<>();
+  // Keyed by productId and limit, lookups of different page sizes are not shared
+  private final SingleFlight<List<Integer>, Tagged<List<Recommendation>>> recommendationCalls = new SingleFlight<>();
+  private final SingleFlight<List<Integer>, Tagged<List<Review>>> reviewCalls = new SingleFlight<>();
+
+  private final Revalidator<Product> productResponses;
+  private final Revalidator<List<Recommendation>> recommendationResponses;
+  private final Revalidator<List<Review>> reviewResponses;
+
+  private final Hedger productHedger;
+  private final Hedger recommendationHedger;
+  private final Hedger reviewHedger;
 
-  private final String productServiceUrl;
-  private final String recommendationServiceUrl;
-  private final String reviewServiceUrl;
+  private final CircuitBreaker productCircuitBreaker;
+  private final CircuitBreaker recommendationCircuitBreaker;
+  private final CircuitBreaker reviewCircuitBreaker;
+
+  private final ConcurrencyLimiter productLimiter;
+  private final ConcurrencyLimiter recommendationLimiter;
+  private final ConcurrencyLimiter reviewLimiter;
+
+  private final Retrier productRetrier;
+  private final Retrier recommendationRetrier;
+  private final Retrier reviewRetrier;
 
   @Autowired
   public ProductCompositeIntegration(
-    RestTemplate restTemplate,
+    WebClient.Builder webClientBuilder,
     ObjectMapper mapper,
-    @Value("${app.product-service.host}") String productServiceHost,
-    @Value("${app.product-service.port}") int productServicePort,
-    @Value("${app.recommendation-service.host}") String recommendationServiceHost,
-    @Value("${app.recommendation-service.port}") int recommendationServicePort,
-    @Value("${app.review-service.host}") String reviewServiceHost,
-    @Value("${app.review-service.port}") int reviewServicePort) {
-
-    this.restTemplate = restTemplate;
+    Hedging hedging,
+    CircuitBreakers circuitBreakers,
+    ConcurrencyLimiters concurrencyLimiters,
+    Retries retries,
+    LoadBalancers loadBalancers,
+    @Value("${app.product-composite.core-media-type}") String coreMediaType,
+    @Value("${app.product-composite.revalidation.maximum-size}") long revalidationMaximumSize,
+    @Value("${app.product-service.instances}") String productServiceInstances,
+    @Value("${app.recommendation-service.instances}") String recommendationServiceInstances,
+    @Value("${app.review-service.instances}") String reviewServiceInstances) {
+
+    this.coreMediaType = MediaType.parseMediaType(coreMediaType);
+    this.webClient = webClientBuilder
+      .defaultHeaders(headers -> headers.setAccept(acceptedMediaTypes(this.coreMediaType)))
+      .build();
     this.mapper = mapper;
+    this.smileMapper = Jackson2ObjectMapperBuilder.smile().build();
 
-    productServiceUrl = "http://" + productServiceHost + ":" + productServicePort + "/product";
-    recommendationServiceUrl = "http://" + recommendationServiceHost + ":" + recommendationServicePort + "/recommendation";
-    reviewServiceUrl = "http://" + reviewServiceHost + ":" + reviewServicePort + "/review";
-  }
+    productResponses = new Revalidator<>(revalidationMaximumSize);
+    recommendationResponses = new Revalidator<>(revalidationMaximumSize);
+    reviewResponses = new Revalidator<>(revalidationMaximumSize);
 
-  @Override
-  public Product createProduct(Product body) {
+    productHedger = hedging.hedger("product");
+    recommendationHedger = hedging.hedger("recommendation");
+    reviewHedger = hedging.hedger("review");
 
-    try {
-      String url = productServiceUrl;
-      LOG.debug("Will post a new product to URL: {}", url);
+    productCircuitBreaker = circuitBreakers.circuitBreaker("product");
+    recommendationCircuitBreaker = circuitBreakers.circuitBreaker("recommendation");
+    reviewCircuitBreaker = circuitBreakers.circuitBreaker("review");
 
-      Product product = restTemplate.postForObject(url, body, Product.class);
-      LOG.debug("Created a product with id: {}", product.getProductId());
+    productLimiter = concurrencyLimiters.limiter("product");
+    recommendationLimiter = concurrencyLimiters.limiter("recommendation");
+    reviewLimiter = concurrencyLimiters.limiter("review");
 
-      return product;
+    productRetrier = retries.retrier("product");
+    recommendationRetrier = retries.retrier("recommendation");
+    reviewRetrier = retries.retrier("review");
 
-    } catch (HttpClientErrorException ex) {
-      throw handleHttpClientException(ex);
-    }
+    productBalancer = loadBalancers.loadBalancer("product", productServiceInstances);
+    recommendationBalancer = loadBalancers.loadBalancer("recommendation", recommendationServiceInstances);
+    reviewBalancer = loadBalancers.loadBalancer("review", reviewServiceInstances);
   }
 
-  @Override
-  public Product getProduct(int productId) {
+  public Mono<Product> createProduct(Product body) {
 
-    try {
-      String url = productServiceUrl + "/" + productId;
-      LOG.debug("Will call the getProduct API on URL: {}", url);
+    String url = PRODUCT_PATH;
+    LOG.debug("Will post a new product to URL: {}", url);
 
-      Product product = restTemplate.getForObject(url, Product.class);
-      LOG.debug("Found a product with id: {}", product.getProductId());
-
-      return product;
+    return productCircuitBreaker.execute(productLimiter.execute(productBalancer.execute(instance -> webClient.post().uri(instance + url).contentType(coreMediaType).bodyValue(body)
+      .retrieve().bodyToMono(Product.class)
+      .doOnNext(product -> LOG.debug("Created a product with id: {}", product.getProductId()))
+      .onErrorMap(WebClientResponseException.class, this::handleException))));
+  }
 
-    } catch (HttpClientErrorException ex) {
-      throw handleHttpClientException(ex);
-    }
+  /**
+   * Concurrent lookups of the same product share one call to the product service, the call is hedged if it is slow.
+   * The call is conditional on the entity tag of the last product received, an unchanged product is not transferred
+   * again.
+   */
+  public Mono<Tagged<Product>> getProduct(int productId) {
+    return productCalls.execute(productId, () -> productHedger.execute(() -> productResponses.execute(productId, eTag -> {
+
+      String url = PRODUCT_PATH + "/" + productId;
+      LOG.debug("Will call the getProduct API on URL: {}, If-None-Match: {}", url, eTag);
+
+      return productCircuitBreaker.execute(productLimiter.execute(productRetrier.execute(productBalancer.execute(instance -> webClient.get().uri(instance + url)
+        .headers(headers -> ifNoneMatch(headers, eTag))
+        .retrieve().toEntity(Product.class)
+        .onErrorMap(WebClientResponseException.class, this::handleException)))));
+    })));
   }
 
-  @Override
-  public void deleteProduct(int productId) {
-    try {
-      String url = productServiceUrl + "/" + productId;
-      LOG.debug("Will call the deleteProduct API on URL: {}", url);
+  public Flux<Product> getProducts(List<Integer> productIds) {
 
-      restTemplate.delete(url);
+    String url = PRODUCT_PATH + "?productIds=" + joinIds(productIds);
+    LOG.debug("Will call the getProducts API on URL: {}", url);
 
-    } catch (HttpClientErrorException ex) {
-      throw handleHttpClientException(ex);
-    }
+    return productCircuitBreaker.execute(productLimiter.execute(productRetrier.executeMany(productBalancer.executeMany(instance -> webClient.get().uri(instance + url)
+      .retrieve().bodyToFlux(Product.class)
+      .onErrorMap(WebClientResponseException.class, this::handleException)))));
   }
 
-  @Override
-  public Recommendation createRecommendation(Recommendation body) {
+  public Mono<Void> deleteProduct(int productId) {
 
-    try {
-      String url = recommendationServiceUrl;
-      LOG.debug("Will post a new recommendation to URL: {}", url);
+    String url = PRODUCT_PATH + "/" + productId;
+    LOG.debug("Will call the deleteProduct API on URL: {}", url);
 
-      Recommendation recommendation = restTemplate.postForObject(url, body, Recommendation.class);
-      LOG.debug("Created a recommendation with id: {}", recommendation.getProductId());
+    return productCircuitBreaker.execute(productLimiter.execute(productBalancer.execute(instance -> webClient.delete().uri(instance + url)
+      .retrieve().bodyToMono(Void.class)
+      .onErrorMap(WebClientResponseException.class, this::handleException))))
+      .doFinally(signal -> productResponses.invalidate(productId));
+  }
 
-      return recommendation;
+  public Mono<Recommendation> createRecommendation(Recommendation body) {
 
-    } catch (HttpClientErrorException ex) {
-      throw handleHttpClientException(ex);
-    }
+    String url = RECOMMENDATION_PATH;
+    LOG.debug("Will post a new recommendation to URL: {}", url);
+
+    return recommendationCircuitBreaker.execute(recommendationLimiter.execute(recommendationBalancer.execute(instance -> webClient.post().uri(instance + url).contentType(coreMediaType).bodyValue(body)
+      .retrieve().bodyToMono(Recommendation.class)
+      .doOnNext(recommendation -> LOG.debug("Created a recommendation with id: {}", recommendation.getProductId()))
+      .onErrorMap(WebClientResponseException.class, this::handleException))));
   }
 
-  @Override
-  public List<Recommendation> getRecommendations(int productId) {
+  /**
+   * Creates the recommendations in one call, the ones that could not be created are reported in the result.
+   */
+  public Mono<BatchResult> createRecommendations(List<Recommendation> body) {
 
-    try {
-      String url = recommendationServiceUrl + "?productId=" + productId;
+    String url = RECOMMENDATION_PATH + "/batch";
+    LOG.debug("Will post {} new recommendations to URL: {}", body.size(), url);
+
+    return recommendationCircuitBreaker.execute(recommendationLimiter.execute(recommendationBalancer.execute(instance -> webClient.post().uri(instance + url).contentType(coreMediaType).bodyValue(body)
+      .retrieve().bodyToMono(BatchResult.class)
+      .doOnNext(result -> LOG.debug("Created {} of {} recommendations", result.getCreated(), body.size()))
+      .onErrorMap(WebClientResponseException.class, this::handleException))));
+  }
 
-      LOG.debug("Will call the getRecommendations API on URL: {}", url);
-      List<Recommendation> recommendations = restTemplate
-        .exchange(url, GET, null, new ParameterizedTypeReference<List<Recommendation>>() {})
-        .getBody();
+  /**
+   * Looks up the first page of the recommendations of a product. Concurrent lookups for the same product and limit share
+   * one call to the recommendation service. The call is hedged if it is slow and conditional on the entity tag of the
+   * last page received.
+   * Errors are propagated, the caller decides how to fall back, see
+   * {@link com.github.microservices.composite.product.cache.LastKnownGoodStore}.
+   */
+  public Mono<Tagged<List<Recommendation>>> getRecommendations(int productId, int limit) {
+    return recommendationCalls.execute(asList(productId, limit), () -> recommendationHedger.execute(() -> recommendationResponses.execute(productId, eTag -> {
+
+      String url = RECOMMENDATION_PATH + "?productId=" + productId + "&limit=" + limit;
+      LOG.debug("Will call the getRecommendations API on URL: {}, If-None-Match: {}", url, eTag);
+
+      return recommendationCircuitBreaker.execute(recommendationLimiter.execute(recommendationRetrier.execute(recommendationBalancer.execute(instance -> webClient.get().uri(instance + url)
+        .headers(headers -> ifNoneMatch(headers, eTag))
+        .retrieve().toEntityList(Recommendation.class)
+        .onErrorMap(WebClientResponseException.class, this::handleException)))));
+    })));
+  }
 
-      LOG.debug("Found {} recommendations for a product with id: {}", recommendations.size(), productId);
-      return recommendations;
+  /**
+   * Looks up a page of the recommendations of a product, without coalescing or hedging the call.
+   *
+   * @param after Only recommendations with a higher id are returned, the first page if null
+   */
+  public Flux<Recommendation> getRecommendations(int productId, int limit, Integer after) {
 
-    } catch (Exception ex) {
-      LOG.warn("Got an exception while requesting recommendations, return zero recommendations: {}", ex.getMessage());
-      return new ArrayList<>();
-    }
+    String url = RECOMMENDATION_PATH + "?productId=" + productId + "&limit=" + limit + (after == null ? "" : "&after=" + after);
+    LOG.debug("Will call the getRecommendations API on URL: {}", url);
+
+    return recommendationCircuitBreaker.execute(recommendationLimiter.execute(recommendationRetrier.executeMany(recommendationBalancer.executeMany(instance -> webClient.get().uri(instance + url)
+      .retrieve().bodyToFlux(Recommendation.class)
+      .onErrorMap(WebClientResponseException.class, this::handleException)))));
   }
 
-  @Override
-  public void deleteRecommendations(int productId) {
-    try {
-      String url = recommendationServiceUrl + "?productId=" + productId;
-      LOG.debug("Will call the deleteRecommendations API on URL: {}", url);
+  public Flux<Recommendation> getRecommendations(List<Integer> productIds) {
 
-      restTemplate.delete(url);
+    String url = RECOMMENDATION_PATH + "?productIds=" + joinIds(productIds);
+    LOG.debug("Will call the getRecommendations API on URL: {}", url);
 
-    } catch (HttpClientErrorException ex) {
-      throw handleHttpClientException(ex);
-    }
+    return recommendationCircuitBreaker.execute(recommendationLimiter.execute(recommendationRetrier.executeMany(recommendationBalancer.executeMany(instance -> webClient.get().uri(instance + url)
+        .retrieve().bodyToFlux(Recommendation.class)))))
+      .onErrorResume(error -> {
+        LOG.warn("Got an exception while requesting recommendations, return zero recommendations: {}", error.getMessage());
+        return empty();
+      });
   }
 
-  @Override
-  public Review createReview(Review body) {
+  public Mono<Void> deleteRecommendations(int productId) {
 
-    try {
-      String url = reviewServiceUrl;
-      LOG.debug("Will post a new review to URL: {}", url);
+    String url = RECOMMENDATION_PATH + "?productId=" + productId;
+    LOG.debug("Will call the deleteRecommendations API on URL: {}", url);
 
-      Review review = restTemplate.postForObject(url, body, Review.class);
-      LOG.debug("Created a review with id: {}", review.getProductId());
+    return recommendationCircuitBreaker.execute(recommendationLimiter.execute(recommendationBalancer.execute(instance -> webClient.delete().uri(instance + url)
+      .retrieve().bodyToMono(Void.class)
+      .onErrorMap(WebClientResponseException.class, this::handleException))))
+      .doFinally(signal -> recommendationResponses.invalidate(productId));
+  }
 
-      return review;
+  public Mono<Review> createReview(Review body) {
 
-    } catch (HttpClientErrorException ex) {
-      throw handleHttpClientException(ex);
-    }
+    String url = REVIEW_PATH;
+    LOG.debug("Will post a new review to URL: {}", url);
+
+    return reviewCircuitBreaker.execute(reviewLimiter.execute(reviewBalancer.execute(instance -> webClient.post().uri(instance + url).contentType(coreMediaType).bodyValue(body)
+      .retrieve().bodyToMono(Review.class)
+      .doOnNext(review -> LOG.debug("Created a review with id: {}", review.getProductId()))
+      .onErrorMap(WebClientResponseException.class, this::handleException))));
   }
 
-  @Override
-  public List<Review> getReviews(int productId) {
+  /**
+   * Looks up the first page of the reviews of a product. Concurrent lookups for the same product and limit share one
+   * call to the review service. The call is hedged if it is slow and conditional on the entity tag of the last page
+   * received. Errors are propagated, the caller decides how to fall back, see
+   * {@link com.github.microservices.composite.product.cache.LastKnownGoodStore}.
+   */
+  public Mono<Tagged<List<Review>>> getReviews(int productId, int limit) {
+    return reviewCalls.execute(asList(productId, limit), () -> reviewHedger.execute(() -> reviewResponses.execute(productId, eTag -> {
+
+      String url = REVIEW_PATH + "?productId=" + productId + "&limit=" + limit;
+      LOG.debug("Will call the getReviews API on URL: {}, If-None-Match: {}", url, eTag);
+
+      return reviewCircuitBreaker.execute(reviewLimiter.execute(reviewRetrier.execute(reviewBalancer.execute(instance -> webClient.get().uri(instance + url)
+        .headers(headers -> ifNoneMatch(headers, eTag))
+        .retrieve().toEntityList(Review.class)
+        .onErrorMap(WebClientResponseException.class, this::handleException)))));
+    })));
+  }
 
-    try {
-      String url = reviewServiceUrl + "?productId=" + productId;
+  /**
+   * Looks up a page of the reviews of a product, without coalescing or hedging the call.
+   *
+   * @param after Only reviews with a higher id are returned, the first page if null
+   */
+  public Flux<Review> getReviews(int productId, int limit, Integer after) {
 
-      LOG.debug("Will call the getReviews API on URL: {}", url);
-      List<Review> reviews = restTemplate
-        .exchange(url, GET, null, new ParameterizedTypeReference<List<Review>>() {})
-        .getBody();
+    String url = REVIEW_PATH + "?productId=" + productId + "&limit=" + limit + (after == null ? "" : "&after=" + after);
+    LOG.debug("Will call the getReviews API on URL: {}", url);
 
-      LOG.debug("Found {} reviews for a product with id: {}", reviews.size(), productId);
-      return reviews;
+    return reviewCircuitBreaker.execute(reviewLimiter.execute(reviewRetrier.executeMany(reviewBalancer.executeMany(instance -> webClient.get().uri(instance + url)
+      .retrieve().bodyToFlux(Review.class)
+      .onErrorMap(WebClientResponseException.class, this::handleException)))));
+  }
 
-    } catch (Exception ex) {
-      LOG.warn("Got an exception while requesting reviews, return zero reviews: {}", ex.getMessage());
-      return new ArrayList<>();
-    }
+  public Flux<Review> getReviews(List<Integer> productIds) {
+
+    String url = REVIEW_PATH + "?productIds=" + joinIds(productIds);
+    LOG.debug("Will call the getReviews API on URL: {}", url);
+
+    return reviewCircuitBreaker.execute(reviewLimiter.execute(reviewRetrier.executeMany(reviewBalancer.executeMany(instance -> webClient.get().uri(instance + url)
+        .retrieve().bodyToFlux(Review.class)))))
+      .onErrorResume(error -> {
+        LOG.warn("Got an exception while requesting reviews, return zero reviews: {}", error.getMessage());
+        return empty();
+      });
   }
 
-  @Override
-  public void deleteReviews(int productId) {
-    try {
-      String url = reviewServiceUrl + "?productId=" + productId;
-      LOG.debug("Will call the deleteReviews API on URL: {}", url);
+  public Mono<Void> deleteReviews(int productId) {
+
+    String url = REVIEW_PATH + "?productId=" + productId;
+    LOG.debug("Will call the deleteReviews API on URL: {}", url);
+
+    return reviewCircuitBreaker.execute(reviewLimiter.execute(reviewBalancer.execute(instance -> webClient.delete().uri(instance + url)
+      .retrieve().bodyToMono(Void.class)
+      .onErrorMap(WebClientResponseException.class, this::handleException))))
+      .doFinally(signal -> reviewResponses.invalidate(productId));
+  }
 
-      restTemplate.delete(url);
+  /**
+   * The core services are asked for the configured media type first, JSON is accepted as well so that error
+   * responses and services not yet supporting the configured type can still be read.
+   */
+  private static List<MediaType> acceptedMediaTypes(MediaType coreMediaType) {
+    return APPLICATION_JSON.equals(coreMediaType) ? singletonList(APPLICATION_JSON) : asList(coreMediaType, APPLICATION_JSON);
+  }
 
-    } catch (HttpClientErrorException ex) {
-      throw handleHttpClientException(ex);
+  private static void ifNoneMatch(HttpHeaders headers, String eTag) {
+    if (eTag != null) {
+      headers.setIfNoneMatch(eTag);
     }
   }
 
-  private RuntimeException handleHttpClientException(HttpClientErrorException ex) {
+  private String joinIds(List<Integer> productIds) {
+    return productIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+  }
+
+  private Throwable handleException(WebClientResponseException ex) {
     switch (ex.getStatusCode()) {
 
       case NOT_FOUND:
-        return new NotFoundException(getErrorMessage(ex));
+        return NotFoundException.withoutStackTrace(getErrorMessage(ex));
 
       case UNPROCESSABLE_ENTITY :
-        return new InvalidInputException(getErrorMessage(ex));
+        return InvalidInputException.withoutStackTrace(getErrorMessage(ex));
 
       default:
         LOG.warn("Got an unexpected HTTP error: {}, will rethrow it", ex.getStatusCode());
@@ -218,11 +371,37 @@ public class ProductCompositeIntegration implements ProductService, Recommendati
     }
   }
 
-  private String getErrorMessage(HttpClientErrorException ex) {
+  private String getErrorMessage(WebClientResponseException ex) {
+    MediaType contentType = ex.getHeaders().getContentType();
+    ObjectMapper reader = contentType != null && APPLICATION_SMILE.isCompatibleWith(contentType) ? smileMapper : mapper;
     try {
-      return mapper.readValue(ex.getResponseBodyAsString(), HttpErrorInfo.class).getMessage();
+      String message = readErrorMessage(reader.getFactory(), ex.getResponseBodyAsByteArray());
+      return message != null ? message : ex.getMessage();
     } catch (IOException ioex) {
       return ex.getMessage();
     }
   }
+
+  /**
+   * Reads the message of an error response, see {@link HttpErrorInfo}. The body is streamed up to the message, the
+   * other fields are skipped rather than bound, the timestamp is not parsed.
+   *
+   * @return the message, null if the body holds none
+   */
+  static String readErrorMessage(JsonFactory factory, byte[] body) throws IOException {
+    try (JsonParser parser = factory.createParser(body)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return null;
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken value = parser.nextToken();
+        if ("message".equals(field)) {
+          return value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+        }
+        parser.skipChildren();
+      }
+      return null;
+    }
+  }
 }
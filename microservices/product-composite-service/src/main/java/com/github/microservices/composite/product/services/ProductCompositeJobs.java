@@ -0,0 +1,155 @@
+package com.github.microservices.composite.product.services;
+
+import static com.github.api.composite.product.ProductCompositeJob.Status.FAILED;
+import static com.github.api.composite.product.ProductCompositeJob.Status.QUEUED;
+import static com.github.api.composite.product.ProductCompositeJob.Status.RUNNING;
+import static com.github.api.composite.product.ProductCompositeJob.Status.SUCCEEDED;
+import static reactor.core.publisher.Sinks.EmitResult.FAIL_OVERFLOW;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import com.github.api.composite.product.ProductCompositeJob;
+import com.github.api.composite.product.ProductCompositeJob.Status;
+import com.github.api.exceptions.ServiceUnavailableException;
+
+/**
+ * Runs the creation of composite products in the background.
+ *
+ * Submitted jobs wait in a bounded queue and at most the configured number of them run at a time, a job submitted
+ * while the queue is full is rejected. The status of each job is kept for the retention time, or until more jobs than
+ * the maximum size were submitted since.
+ */
+@Component
+public class ProductCompositeJobs {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ProductCompositeJobs.class);
+
+  private final Cache<String, ProductCompositeJob> jobs;
+  private final Sinks.Many<Job> queue;
+  private final AtomicInteger queued = new AtomicInteger();
+  private final Disposable worker;
+
+  private final Counter succeeded;
+  private final Counter failed;
+  private final Counter rejected;
+
+  @Autowired
+  public ProductCompositeJobs(
+    MeterRegistry registry,
+    @Value("${app.product-composite.jobs.concurrency}") int concurrency,
+    @Value("${app.product-composite.jobs.queue-capacity}") int queueCapacity,
+    @Value("${app.product-composite.jobs.maximum-size}") long maximumSize,
+    @Value("${app.product-composite.jobs.retention}") Duration retention) {
+
+    this.jobs = Caffeine.newBuilder()
+      .maximumSize(maximumSize)
+      .expireAfterWrite(retention)
+      .build();
+
+    this.queue = Sinks.many().unicast().onBackpressureBuffer(Queues.<Job>get(queueCapacity).get());
+    this.worker = queue.asFlux()
+      .flatMap(this::run, concurrency)
+      .subscribe();
+
+    Gauge.builder("product-composite.jobs.queued", queued, AtomicInteger::get)
+      .description("Jobs waiting to run")
+      .register(registry);
+    succeeded = registry.counter("product-composite.jobs.completed", "outcome", "succeeded");
+    failed = registry.counter("product-composite.jobs.completed", "outcome", "failed");
+    rejected = registry.counter("product-composite.jobs.completed", "outcome", "rejected");
+
+    LOG.info("Running up to {} jobs at a time, queue capacity: {}, status kept for {} up to {} jobs",
+      concurrency, queueCapacity, retention, maximumSize);
+  }
+
+  /**
+   * @param productId Id of the product the job creates
+   * @param work Creates the product when subscribed to
+   * @return the queued job
+   * @throws ServiceUnavailableException if the queue is full
+   */
+  public ProductCompositeJob submit(int productId, Mono<Void> work) {
+    Job job = new Job(UUID.randomUUID().toString(), productId, work);
+    ProductCompositeJob status = update(job, QUEUED, null);
+
+    // Counted before it is emitted, a worker may take the job and count it out before tryEmitNext returns
+    queued.incrementAndGet();
+    Sinks.EmitResult result;
+    // The queue accepts one producer at a time, concurrent submissions take turns
+    synchronized (queue) {
+      result = queue.tryEmitNext(job);
+    }
+    if (result.isFailure()) {
+      queued.decrementAndGet();
+      jobs.invalidate(job.jobId);
+      rejected.increment();
+      LOG.warn("Rejects the job of productId: {}, {}", productId, result == FAIL_OVERFLOW ? "the queue is full" : result);
+      throw ServiceUnavailableException.withoutStackTrace("Too many composite products are being created, try again later");
+    }
+    return status;
+  }
+
+  /**
+   * @return the status of the job, empty if it is unknown or no longer kept
+   */
+  public Mono<ProductCompositeJob> get(String jobId) {
+    return Mono.justOrEmpty(jobs.getIfPresent(jobId));
+  }
+
+  @PreDestroy
+  void stop() {
+    worker.dispose();
+  }
+
+  private Mono<Void> run(Job job) {
+    return Mono.defer(() -> {
+        queued.decrementAndGet();
+        update(job, RUNNING, null);
+        return job.work;
+      })
+      .doOnSuccess(v -> {
+        update(job, SUCCEEDED, null);
+        succeeded.increment();
+      })
+      .onErrorResume(ex -> {
+        LOG.warn("Job {} of productId: {} failed: {}", job.jobId, job.productId, ex.toString());
+        update(job, FAILED, ex.getMessage());
+        failed.increment();
+        return Mono.empty();
+      });
+  }
+
+  private ProductCompositeJob update(Job job, Status status, String message) {
+    ProductCompositeJob updated = new ProductCompositeJob(job.jobId, job.productId, status, message);
+    jobs.put(job.jobId, updated);
+    return updated;
+  }
+
+  private static class Job {
+    private final String jobId;
+    private final int productId;
+    private final Mono<Void> work;
+
+    Job(String jobId, int productId, Mono<Void> work) {
+      this.jobId = jobId;
+      this.productId = productId;
+      this.work = work;
+    }
+  }
+}
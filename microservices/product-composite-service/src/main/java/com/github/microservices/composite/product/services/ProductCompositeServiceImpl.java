@@ -1,17 +1,38 @@
 package com.github.microservices.composite.product.services;
 
+import static java.util.Collections.emptyList;
+
+import java.net.URI;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 import com.github.api.composite.product.*;
+import com.github.microservices.composite.product.cache.LastKnownGoodStore;
+import com.github.microservices.composite.product.cache.LastKnownGoodStore.Snapshot;
+import com.github.microservices.composite.product.cache.ProductAggregateCache;
+import com.github.microservices.composite.product.codec.AssembledProductAggregate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 import com.github.api.core.product.Product;
 import com.github.api.core.recommendation.Recommendation;
 import com.github.api.core.review.Review;
+import com.github.api.exceptions.InvalidInputException;
 import com.github.api.exceptions.NotFoundException;
+import com.github.api.exceptions.ServiceUnavailableException;
+import com.github.util.http.EntityTagBuilder;
 import com.github.util.http.ServiceUtil;
 
 @RestController
@@ -20,111 +41,437 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
   private static final Logger LOG = LoggerFactory.getLogger(ProductCompositeServiceImpl.class);
 
   private final ServiceUtil serviceUtil;
-  private ProductCompositeIntegration integration;
+  private final ProductCompositeIntegration integration;
+  private final ProductAggregateCache cache;
+  private final LastKnownGoodStore lastKnownGood;
+  private final ProductCompositeJobs jobs;
+  private final int pageSize;
+  private final int maximumProductIds;
+  private final int recommendationBatchSize;
+  private final int recommendationConcurrency;
+  private final int reviewConcurrency;
 
   @Autowired
   public ProductCompositeServiceImpl(
-    ServiceUtil serviceUtil, ProductCompositeIntegration integration) {
+    ServiceUtil serviceUtil,
+    ProductCompositeIntegration integration,
+    ProductAggregateCache cache,
+    LastKnownGoodStore lastKnownGood,
+    ProductCompositeJobs jobs,
+    @Value("${app.product-composite.page-size}") int pageSize,
+    @Value("${app.product-composite.maximum-product-ids}") int maximumProductIds,
+    @Value("${app.product-composite.create.recommendation-batch-size}") int recommendationBatchSize,
+    @Value("${app.product-composite.create.recommendation-concurrency}") int recommendationConcurrency,
+    @Value("${app.product-composite.create.review-concurrency}") int reviewConcurrency) {
     
     this.serviceUtil = serviceUtil;
     this.integration = integration;
+    this.cache = cache;
+    this.lastKnownGood = lastKnownGood;
+    this.jobs = jobs;
+    this.pageSize = pageSize;
+    this.maximumProductIds = maximumProductIds;
+    this.recommendationBatchSize = recommendationBatchSize;
+    this.recommendationConcurrency = recommendationConcurrency;
+    this.reviewConcurrency = reviewConcurrency;
   }
 
   @Override
-  public void createProduct(ProductAggregate body) {
+  public Mono<Void> createProduct(ProductAggregate body) {
 
     try {
 
       LOG.debug("createCompositeProduct: creates a new composite entity for productId: {}", body.getProductId());
 
-      Product product = new Product(body.getProductId(), body.getName(), body.getWeight(), null);
-      integration.createProduct(product);
+      validate(body);
+      return create(body);
+
+    } catch (RuntimeException re) {
+      LOG.warn("createCompositeProduct failed: {}", re.toString());
+      throw re;
+    }
+  }
+
+  @Override
+  public Mono<ResponseEntity<ProductCompositeJob>> createProductAsync(ProductAggregate body) {
 
-      if (body.getRecommendations() != null) {
-        body.getRecommendations().forEach(r -> {
-          Recommendation recommendation = new Recommendation(body.getProductId(), r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent(), null);
-          integration.createRecommendation(recommendation);
-        });
-      }
+    try {
 
-      if (body.getReviews() != null) {
-        body.getReviews().forEach(r -> {
-          Review review = new Review(body.getProductId(), r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent(), null);
-          integration.createReview(review);
-        });
-      }
+      LOG.debug("createCompositeProductAsync: queues the creation of a composite entity for productId: {}", body.getProductId());
 
-      LOG.debug("createCompositeProduct: composite entities created for productId: {}", body.getProductId());
+      // Only the validation is done before responding, the calls to the core services are made by the job
+      validate(body);
+      ProductCompositeJob job = jobs.submit(body.getProductId(), create(body));
+      return Mono.just(ResponseEntity.accepted()
+        .location(URI.create("/product-composite/jobs/" + job.getJobId()))
+        .body(job));
 
     } catch (RuntimeException re) {
-      LOG.warn("createCompositeProduct failed", re);
+      LOG.warn("createCompositeProductAsync failed: {}", re.toString());
       throw re;
     }
   }
 
+  @Override
+  public Mono<ProductCompositeJob> getProductJob(String jobId) {
+
+    LOG.debug("getCompositeProductJob: lookup the status of job: {}", jobId);
+
+    return jobs.get(jobId)
+      .switchIfEmpty(Mono.error(NotFoundException.withoutStackTrace("No job found for jobId: " + jobId)));
+  }
+
+  /**
+   * Rejects a composite product the core services would reject, before any of them is called.
+   */
+  private static void validate(ProductAggregate body) {
+    if (body.getProductId() < 1) {
+      throw InvalidInputException.withoutStackTrace("Invalid productId: " + body.getProductId());
+    }
+    if (body.getRecommendations() != null) {
+      Set<Integer> ids = new HashSet<>();
+      body.getRecommendations().forEach(r -> {
+        if (!ids.add(r.getRecommendationId())) {
+          throw InvalidInputException.withoutStackTrace("Duplicate key, Product Id: " + body.getProductId() + ", Recommendation Id:" + r.getRecommendationId());
+        }
+      });
+    }
+    if (body.getReviews() != null) {
+      Set<Integer> ids = new HashSet<>();
+      body.getReviews().forEach(r -> {
+        if (!ids.add(r.getReviewId())) {
+          throw InvalidInputException.withoutStackTrace("Duplicate key, Product Id: " + body.getProductId() + ", Review Id:" + r.getReviewId());
+        }
+      });
+    }
+  }
+
+  /**
+   * The product, its recommendations and its reviews are created concurrently. The recommendations are created in
+   * batches, with at most the configured number of batches and reviews created at a time. A part that fails does not
+   * stop the others, the failures of all parts are reported together when the other parts are done.
+   *
+   * @return creates the product, its recommendations and its reviews when subscribed to
+   */
+  private Mono<Void> create(ProductAggregate body) {
+
+    int productId = body.getProductId();
+
+    Product product = new Product(productId, body.getName(), body.getWeight(), null);
+    Mono<Tuple2<String, Throwable>> productFailure = failureOf("product", integration.createProduct(product));
+
+    Flux<Tuple2<String, Throwable>> recommendationFailures = Flux.fromIterable(orEmpty(body.getRecommendations()))
+      .map(r -> new Recommendation(productId, r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent(), null))
+      .buffer(recommendationBatchSize)
+      .flatMap(this::recommendationFailures, recommendationConcurrency);
+
+    Flux<Tuple2<String, Throwable>> reviewFailures = Flux.fromIterable(orEmpty(body.getReviews()))
+      .flatMap(r -> failureOf("review " + r.getReviewId(), integration.createReview(
+        new Review(productId, r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent(), null))),
+        reviewConcurrency);
+
+    return Flux.merge(productFailure, recommendationFailures, reviewFailures)
+      .collectList()
+      .flatMap(failures -> failures.isEmpty() ? Mono.<Void>empty() : Mono.<Void>error(createFailure(productId, failures)))
+      .doOnError(ex -> LOG.warn("createCompositeProduct failed: {}", ex.toString()))
+      .doOnSuccess(v -> LOG.debug("createCompositeProduct: composite entities created for productId: {}", productId))
+      .doFinally(signal -> cache.invalidate(productId));
+  }
+
+  /**
+   * @return the failures of the recommendations of the batch that were not created, a single failure for the whole
+   * batch if the call failed
+   */
+  private Flux<Tuple2<String, Throwable>> recommendationFailures(List<Recommendation> batch) {
+    return integration.createRecommendations(batch)
+      .flatMapIterable(result -> orEmpty(result.getFailures()))
+      .map(failure -> Tuples.<String, Throwable>of(
+        "recommendation " + batch.get(failure.getIndex()).getRecommendationId(), new InvalidInputException(failure.getMessage())))
+      .onErrorResume(ex -> Mono.just(Tuples.of("recommendations " + batch.get(0).getRecommendationId() + " to "
+        + batch.get(batch.size() - 1).getRecommendationId(), ex)));
+  }
+
+  /**
+   * @return the failure of the create, labelled with the part it created, empty if the create succeeded
+   */
+  private static Mono<Tuple2<String, Throwable>> failureOf(String part, Mono<?> create) {
+    return create
+      .then(Mono.<Tuple2<String, Throwable>>empty())
+      .onErrorResume(ex -> Mono.just(Tuples.of(part, ex)));
+  }
+
+  /**
+   * A single failure is reported as it is. Several failures are reported in one message, as invalid input if all of
+   * them were, else as the core services being unavailable.
+   */
+  private static Throwable createFailure(int productId, List<Tuple2<String, Throwable>> failures) {
+    if (failures.size() == 1) {
+      return failures.get(0).getT2();
+    }
+
+    String message = "Failed to create " + failures.size() + " parts of productId: " + productId + ", "
+      + failures.stream().map(failure -> failure.getT1() + ": " + failure.getT2().getMessage()).collect(Collectors.joining("; "));
+    boolean invalidInput = failures.stream().allMatch(failure -> failure.getT2() instanceof InvalidInputException);
+    return invalidInput ? new InvalidInputException(message) : new ServiceUnavailableException(message, failures.get(0).getT2());
+  }
+
+  private static <T> List<T> orEmpty(List<T> items) {
+    return items != null ? items : emptyList();
+  }
 
   @Override
-  public ProductAggregate getProduct(int productId) {
+  public Mono<ResponseEntity<ProductAggregate>> getProduct(int productId, String fields) {
 
-    LOG.debug("getCompositeProduct: lookup a product aggregate for productId: {}", productId);
+    LOG.debug("getCompositeProduct: lookup a product aggregate for productId: {}, fields: {}", productId, fields);
 
-    Product product = integration.getProduct(productId);
-    if (product == null) {
-      throw new NotFoundException("No product found for productId: " + productId);
+    FieldSelection selection = FieldSelection.parse(fields);
+    if (selection.isAll()) {
+      return cache.get(productId, this::loadProduct)
+        .map(aggregate -> withEntityTag(aggregate, entityTag(aggregate, selection)));
     }
 
-    List<Recommendation> recommendations = integration.getRecommendations(productId);
+    // Partial aggregates are not cached, but a cached complete aggregate can serve them
+    return cache.getIfPresent(productId)
+      .map(cached -> withEntityTag(selection.project(cached), entityTag(cached, selection)))
+      .switchIfEmpty(Mono.defer(() -> loadProduct(productId, selection)
+        .map(aggregate -> withEntityTag(aggregate, entityTag(aggregate, selection)))));
+  }
+
+  private Mono<ProductAggregate> loadProduct(int productId) {
+    return loadProduct(productId, FieldSelection.ALL);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Mono<ProductAggregate> loadProduct(int productId, FieldSelection selection) {
+
+    LOG.debug("getCompositeProduct: assembles the product aggregate for productId: {}", productId);
+
+    // The entity tags of the product, recommendations and reviews, recorded as the responses are received
+    String[] entityTags = new String[3];
+
+    // The product is always looked up, it decides if the aggregate exists. Recommendations and reviews are only looked
+    // up if they are selected, one more than a page is asked for to tell if there is a next page
+    Mono<Product> product = integration.getProduct(productId)
+      .doOnNext(tagged -> entityTags[0] = tagged.getEntityTag())
+      .map(Tagged::getValue)
+      .switchIfEmpty(Mono.error(NotFoundException.withoutStackTrace("No product found for productId: " + productId)));
+    Mono<Snapshot<List<Recommendation>>> recommendations = selection.recommendations()
+      ? lastKnownGood.getRecommendations(productId, integration.getRecommendations(productId, pageSize + 1)
+        .doOnNext(tagged -> entityTags[1] = tagged.getEntityTag())
+        .map(Tagged::getValue))
+      : Mono.just(Snapshot.fresh(null));
+    Mono<Snapshot<List<Review>>> reviews = selection.reviews()
+      ? lastKnownGood.getReviews(productId, integration.getReviews(productId, pageSize + 1)
+        .doOnNext(tagged -> entityTags[2] = tagged.getEntityTag())
+        .map(Tagged::getValue))
+      : Mono.just(Snapshot.fresh(null));
+
+    // The lookups are subscribed to concurrently, the latency is the one of the slowest call. Recommendations and
+    // reviews fall back to their last known good copy if their service fails or exceeds the latency budget
+    return Mono.zip(
+        values -> {
+          Snapshot<List<Recommendation>> recommendationsSnapshot = (Snapshot<List<Recommendation>>) values[1];
+          Snapshot<List<Review>> reviewsSnapshot = (Snapshot<List<Review>>) values[2];
+          List<Recommendation> recommendationList = recommendationsSnapshot.getValue();
+          List<Review> reviewList = reviewsSnapshot.getValue();
+          boolean stale = recommendationsSnapshot.isStale() || reviewsSnapshot.isStale();
+          return createProductAggregate((Product) values[0],
+            firstPage(recommendationList), cursor(recommendationList, Recommendation::getRecommendationId),
+            firstPage(reviewList), cursor(reviewList, Review::getReviewId),
+            serviceUtil.getServiceAddress(), stale, stale ? null : entityTag(entityTags, selection), selection);
+        },
+        product,
+        recommendations,
+        reviews)
+      .doOnNext(aggregate -> LOG.debug("getCompositeProduct: aggregate entity found for productId: {}", productId))
+      .doOnError(ex -> LOG.warn("getCompositeProduct failed: {}", ex.toString()));
+  }
+
+  @Override
+  public Flux<ProductAggregatePart> getProductStream(int productId) {
+
+    LOG.debug("getCompositeProductStream: streams a product aggregate for productId: {}", productId);
+
+    Flux<ProductAggregatePart> product = integration.getProduct(productId)
+      .map(Tagged::getValue)
+      .switchIfEmpty(Mono.error(NotFoundException.withoutStackTrace("No product found for productId: " + productId)))
+      .map(p -> ProductAggregatePart.product(p.getProductId(), p.getName(), p.getWeight(),
+        new ServiceAddresses(serviceUtil.getServiceAddress(), p.getServiceAddress(), null, null)))
+      .flux();
+
+    Flux<ProductAggregatePart> recommendations = allPages(
+        after -> integration.getRecommendations(productId, pageSize, after), Recommendation::getRecommendationId)
+      .map(r -> ProductAggregatePart.recommendation(productId,
+        new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent())))
+      .onErrorResume(ex -> {
+        LOG.warn("getCompositeProductStream: stops streaming recommendations of productId: {}, error: {}", productId, ex.toString());
+        return Flux.empty();
+      });
+
+    Flux<ProductAggregatePart> reviews = allPages(
+        after -> integration.getReviews(productId, pageSize, after), Review::getReviewId)
+      .map(r -> ProductAggregatePart.review(productId,
+        new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent())))
+      .onErrorResume(ex -> {
+        LOG.warn("getCompositeProductStream: stops streaming reviews of productId: {}, error: {}", productId, ex.toString());
+        return Flux.empty();
+      });
+
+    // All three calls start at once. The product is always sent first, recommendations and reviews that arrive before
+    // it are held back in the bounded prefetch queues and the next pages are asked for as the client consumes the stream
+    return Flux.mergeSequential(product, Flux.merge(recommendations, reviews))
+      .doOnError(ex -> LOG.warn("getCompositeProductStream failed: {}", ex.toString()));
+  }
+
+  @Override
+  public Flux<RecommendationSummary> getProductRecommendations(int productId, Integer limit, Integer after) {
+
+    LOG.debug("getCompositeProductRecommendations: lookup recommendations for productId: {}, after: {}", productId, after);
+
+    return integration.getRecommendations(productId, limit == null ? pageSize : limit, after)
+      .map(r -> new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent()))
+      .doOnError(ex -> LOG.warn("getCompositeProductRecommendations failed: {}", ex.toString()));
+  }
 
-    List<Review> reviews = integration.getReviews(productId);
+  @Override
+  public Flux<ReviewSummary> getProductReviews(int productId, Integer limit, Integer after) {
 
-    LOG.debug("getCompositeProduct: aggregate entity found for productId: {}", productId);
+    LOG.debug("getCompositeProductReviews: lookup reviews for productId: {}, after: {}", productId, after);
 
-    return createProductAggregate(product, recommendations, reviews, serviceUtil.getServiceAddress());
+    return integration.getReviews(productId, limit == null ? pageSize : limit, after)
+      .map(r -> new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent()))
+      .doOnError(ex -> LOG.warn("getCompositeProductReviews failed: {}", ex.toString()));
   }
 
   @Override
-  public void deleteProduct(int productId) {
+  public Flux<ProductAggregate> getProducts(List<Integer> productIds) {
+
+    List<Integer> ids = productIds.stream().distinct().collect(Collectors.toList());
+    if (ids.isEmpty() || ids.size() > maximumProductIds) {
+      throw InvalidInputException.withoutStackTrace("Invalid number of productIds: " + ids.size() + ", expected 1 to " + maximumProductIds);
+    }
+
+    LOG.debug("getCompositeProducts: lookup product aggregates for {} productIds", ids.size());
+
+    // One call per core service for the whole batch, the three calls are made concurrently
+    return Mono.zip(
+        integration.getProducts(ids).collectMap(Product::getProductId),
+        integration.getRecommendations(ids).collect(Collectors.groupingBy(Recommendation::getProductId)),
+        integration.getReviews(ids).collect(Collectors.groupingBy(Review::getProductId)))
+      .flatMapMany(parts -> {
+        Map<Integer, Product> products = parts.getT1();
+        Map<Integer, List<Recommendation>> recommendations = parts.getT2();
+        Map<Integer, List<Review>> reviews = parts.getT3();
+        String serviceAddress = serviceUtil.getServiceAddress();
+
+        LOG.debug("getCompositeProducts: {} of {} products found", products.size(), ids.size());
+
+        return Flux.fromIterable(ids)
+          .filter(products::containsKey)
+          .map(id -> createProductAggregate(
+            products.get(id),
+            recommendations.getOrDefault(id, emptyList()),
+            null,
+            reviews.getOrDefault(id, emptyList()),
+            null,
+            serviceAddress,
+            false,
+            null,
+            FieldSelection.ALL));
+      })
+      .doOnError(ex -> LOG.warn("getCompositeProducts failed: {}", ex.toString()));
+  }
+
+  @Override
+  public Mono<Void> deleteProduct(int productId) {
 
     LOG.debug("deleteCompositeProduct: Deletes a product aggregate for productId: {}", productId);
 
-    integration.deleteProduct(productId);
+    return Mono.when(
+        integration.deleteProduct(productId),
+        integration.deleteRecommendations(productId),
+        integration.deleteReviews(productId))
+      .doOnSuccess(v -> LOG.debug("deleteCompositeProduct: aggregate entities deleted for productId: {}", productId))
+      .doFinally(signal -> cache.invalidate(productId))
+      .doOnError(ex -> LOG.warn("deleteCompositeProduct failed: {}", ex.toString()));
+  }
 
-    integration.deleteRecommendations(productId);
+  /**
+   * Reads the pages one after the other, a page is asked for when the previous one is received and was full.
+   */
+  private <T> Flux<T> allPages(Function<Integer, Flux<T>> page, ToIntFunction<T> id) {
+    return page.apply(null).collectList()
+      .expand(items -> items.size() < pageSize
+        ? Mono.empty()
+        : page.apply(id.applyAsInt(items.get(items.size() - 1))).collectList())
+      .flatMapIterable(items -> items);
+  }
 
-    integration.deleteReviews(productId);
+  /**
+   * Combines the entity tags of the product and of the selected recommendations and reviews into the tag of the
+   * aggregate, null if one of them was not tagged.
+   */
+  private String entityTag(String[] entityTags, FieldSelection selection) {
+    if (entityTags[0] == null
+      || (selection.recommendations() && entityTags[1] == null)
+      || (selection.reviews() && entityTags[2] == null)) {
+      return null;
+    }
+    return new EntityTagBuilder().add(entityTags[0]).add(entityTags[1]).add(entityTags[2]).add(pageSize).build();
+  }
 
-    LOG.debug("deleteCompositeProduct: aggregate entities deleted for productId: {}", productId);
+  /**
+   * The tag of a response is the one of the aggregate it is made of, combined with the selected fields.
+   */
+  private static String entityTag(ProductAggregate aggregate, FieldSelection selection) {
+    String entityTag = aggregate instanceof AssembledProductAggregate ? ((AssembledProductAggregate) aggregate).getEntityTag() : null;
+    return entityTag == null ? null : new EntityTagBuilder().add(entityTag).add(selection.bits()).build();
+  }
+
+  /**
+   * A request with a matching If-None-Match header is answered with 304 Not Modified, without writing the body.
+   */
+  private static ResponseEntity<ProductAggregate> withEntityTag(ProductAggregate aggregate, String entityTag) {
+    return entityTag == null ? ResponseEntity.ok(aggregate) : ResponseEntity.ok().eTag(entityTag).body(aggregate);
+  }
+
+  private <T> List<T> firstPage(List<T> items) {
+    return items != null && items.size() > pageSize ? items.subList(0, pageSize) : items;
+  }
+
+  /**
+   * @return the id of the last item of the first page, if more than a page of items was received
+   */
+  private <T> Integer cursor(List<T> items, ToIntFunction<T> id) {
+    return items != null && items.size() > pageSize ? id.applyAsInt(items.get(pageSize - 1)) : null;
   }
 
   private ProductAggregate createProductAggregate(
     Product product,
     List<Recommendation> recommendations,
+    Integer recommendationsCursor,
     List<Review> reviews,
-    String serviceAddress) {
+    Integer reviewsCursor,
+    String serviceAddress,
+    boolean stale,
+    String entityTag,
+    FieldSelection selection) {
 
     // 1. Setup product info
     int productId = product.getProductId();
-    String name = product.getName();
-    int weight = product.getWeight();
-
-    // 2. Copy summary recommendation info, if available
-    List<RecommendationSummary> recommendationSummaries = (recommendations == null) ? null :
-      recommendations.stream()
-        .map(r -> new RecommendationSummary(r.getRecommendationId(), r.getAuthor(), r.getRate(), r.getContent()))
-        .collect(Collectors.toList());
-
-    // 3. Copy summary review info, if available
-    List<ReviewSummary> reviewSummaries = (reviews == null) ? null :
-      reviews.stream()
-        .map(r -> new ReviewSummary(r.getReviewId(), r.getAuthor(), r.getSubject(), r.getContent()))
-        .collect(Collectors.toList());
-
-    // 4. Create info regarding the involved microservices addresses
+    String name = selection.name() ? product.getName() : null;
+    int weight = selection.weight() ? product.getWeight() : 0;
+
+    // 2. Recommendations and reviews are kept as received, their summaries are written from them by ProductAggregateEncoder
+
+    // 3. Create info regarding the involved microservices addresses
     String productAddress = product.getServiceAddress();
     String reviewAddress = (reviews != null && reviews.size() > 0) ? reviews.get(0).getServiceAddress() : "";
     String recommendationAddress = (recommendations != null && recommendations.size() > 0) ? recommendations.get(0).getServiceAddress() : "";
-    ServiceAddresses serviceAddresses = new ServiceAddresses(serviceAddress, productAddress, reviewAddress, recommendationAddress);
+    ServiceAddresses serviceAddresses = !selection.serviceAddresses() ? null :
+      new ServiceAddresses(serviceAddress, productAddress, reviewAddress, recommendationAddress);
 
-    return new ProductAggregate(productId, name, weight, recommendationSummaries, reviewSummaries, serviceAddresses);
+    return new AssembledProductAggregate(
+      productId, name, weight, recommendations, recommendationsCursor, reviews, reviewsCursor, serviceAddresses, stale, entityTag);
   }
 }
@@ -0,0 +1,55 @@
+package com.github.microservices.composite.product.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.function.Function;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the last tagged response received for each product id, so that the next call for it can be conditional.
+ *
+ * The call is made with the kept entity tag as If-None-Match, a 304 Not Modified answer is served from the kept value
+ * without transferring or decoding the body again. The kept values are the same instances that are handed to the
+ * callers, so keeping them adds little to the heap. The number of kept responses is bounded, eviction is frequency
+ * aware as in {@link com.github.microservices.composite.product.cache.ProductAggregateCache}.
+ */
+class Revalidator<T> {
+
+  private final Cache<Integer, Tagged<T>> responses;
+
+  Revalidator(long maximumSize) {
+    responses = Caffeine.newBuilder().maximumSize(maximumSize).build();
+  }
+
+  /**
+   * @param call Makes the call, with the entity tag to send as If-None-Match, null if none is kept
+   * @return the received or the kept value, empty if the response had no body
+   */
+  Mono<Tagged<T>> execute(int productId, Function<String, Mono<ResponseEntity<T>>> call) {
+    return Mono.defer(() -> {
+      Tagged<T> kept = responses.getIfPresent(productId);
+      return call.apply(kept == null ? null : kept.getEntityTag()).flatMap(response -> {
+        if (kept != null && response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+          return Mono.just(kept);
+        }
+        if (response.getBody() == null) {
+          responses.invalidate(productId);
+          return Mono.empty();
+        }
+        Tagged<T> received = new Tagged<>(response.getBody(), response.getHeaders().getETag());
+        if (received.getEntityTag() == null) {
+          responses.invalidate(productId);
+        } else {
+          responses.put(productId, received);
+        }
+        return Mono.just(received);
+      });
+    });
+  }
+
+  void invalidate(int productId) {
+    responses.invalidate(productId);
+  }
+}
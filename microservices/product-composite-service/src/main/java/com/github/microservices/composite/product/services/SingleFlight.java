@@ -0,0 +1,32 @@
+package com.github.microservices.composite.product.services;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import reactor.core.publisher.Mono;
+
+/**
+ * Coalesces concurrent calls for the same key, e.g. a product id, into one downstream call.
+ *
+ * The first caller for a key starts the call, callers that arrive while it is in flight subscribe to the same result. The entry is removed as soon as the call completes, so results are never served after the fact.
+ */
+class SingleFlight<K, T> {
+
+  private final ConcurrentMap<K, Mono<T>> inFlight = new ConcurrentHashMap<>();
+
+  Mono<T> execute(K key, Supplier<Mono<T>> call) {
+    return Mono.defer(() -> inFlight.computeIfAbsent(key, k -> share(k, call.get())));
+  }
+
+  private Mono<T> share(K key, Mono<T> call) {
+    // Only removes the entry of this call, a late signal of a finished call must not release a newer call
+    AtomicReference<Mono<T>> shared = new AtomicReference<>();
+    shared.set(call.doFinally(signal -> inFlight.remove(key, shared.get())).share());
+    return shared.get();
+  }
+
+  int size() {
+    return inFlight.size();
+  }
+}
@@ -0,0 +1,26 @@
+package com.github.microservices.composite.product.services;
+
+/**
+ * A value received from a core service, with the entity tag of the response it was received in.
+ */
+public class Tagged<T> {
+
+  private final T value;
+  private final String entityTag;
+
+  public Tagged(T value, String entityTag) {
+    this.value = value;
+    this.entityTag = entityTag;
+  }
+
+  public T getValue() {
+    return value;
+  }
+
+  /**
+   * @return the ETag header of the response, or null if it had none
+   */
+  public String getEntityTag() {
+    return entityTag;
+  }
+}
@@ -1,55 +1,151 @@
 package com.github.microservices.composite.product;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.LOCATION;
+import static org.springframework.http.HttpHeaders.VARY;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
+import static com.github.api.composite.product.ProductCompositeJob.Status.FAILED;
+import static com.github.api.composite.product.ProductCompositeJob.Status.SUCCEEDED;
 import static reactor.core.publisher.Mono.just;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.microservices.composite.product.services.ProductCompositeIntegration;
+import com.github.microservices.composite.product.services.Tagged;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.test.StepVerifier;
 import com.github.api.composite.product.ProductAggregate;
+import com.github.api.composite.product.ProductAggregatePart;
+import com.github.api.composite.product.ProductCompositeJob;
 import com.github.api.composite.product.RecommendationSummary;
 import com.github.api.composite.product.ReviewSummary;
+import com.github.api.core.BatchResult;
 import com.github.api.core.product.Product;
 import com.github.api.core.recommendation.Recommendation;
 import com.github.api.core.review.Review;
 import com.github.api.exceptions.InvalidInputException;
 import com.github.api.exceptions.NotFoundException;
+import com.github.api.exceptions.ServiceUnavailableException;
 
-@SpringBootTest(webEnvironment = RANDOM_PORT)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+  "app.product-composite.page-size=2",
+  "app.compression.minimum-size=200B",
+  "app.product-composite.create.recommendation-batch-size=2",
+  "app.product-composite.create.review-concurrency=2"})
 class ProductCompositeServiceApplicationTests {
 
   private static final int PRODUCT_ID_OK = 1;
   private static final int PRODUCT_ID_NOT_FOUND = 2;
   private static final int PRODUCT_ID_INVALID = 3;
+  private static final int PRODUCT_ID_UNAVAILABLE = 4;
+  private static final int PRODUCT_ID_PAGED = 5;
+  private static final int PRODUCT_ID_UNTAGGED = 6;
 
   @Autowired private WebTestClient client;
 
+  @LocalServerPort private int port;
+
   @MockBean private ProductCompositeIntegration compositeIntegration;
 
   @BeforeEach
   void setUp() {
 
     when(compositeIntegration.getProduct(PRODUCT_ID_OK))
-      .thenReturn(new Product(PRODUCT_ID_OK, "name", 1, "mock-address"));
-    when(compositeIntegration.getRecommendations(PRODUCT_ID_OK))
-      .thenReturn(singletonList(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock address")));
-    when(compositeIntegration.getReviews(PRODUCT_ID_OK))
-      .thenReturn(singletonList(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address")));
+      .thenReturn(tagged(new Product(PRODUCT_ID_OK, "name", 1, "mock-address"), "W/\"p1\""));
+    when(compositeIntegration.getRecommendations(eq(PRODUCT_ID_OK), anyInt()))
+      .thenReturn(tagged(singletonList(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock address")), "W/\"rec1\""));
+    when(compositeIntegration.getReviews(eq(PRODUCT_ID_OK), anyInt()))
+      .thenReturn(tagged(singletonList(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address")), "W/\"rev1\""));
+
+    when(compositeIntegration.getRecommendations(anyInt(), anyInt(), any())).thenReturn(Flux.empty());
+    when(compositeIntegration.getReviews(anyInt(), anyInt(), any())).thenReturn(Flux.empty());
+    when(compositeIntegration.getRecommendations(eq(PRODUCT_ID_OK), anyInt(), isNull()))
+      .thenReturn(Flux.just(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock address")));
+    when(compositeIntegration.getReviews(eq(PRODUCT_ID_OK), anyInt(), isNull()))
+      .thenReturn(Flux.just(
+        new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address"),
+        new Review(PRODUCT_ID_OK, 2, "author", "subject", "content", "mock address")));
+    when(compositeIntegration.getReviews(eq(PRODUCT_ID_OK), anyInt(), eq(2)))
+      .thenReturn(Flux.just(new Review(PRODUCT_ID_OK, 3, "author", "subject", "content", "mock address")));
 
     when(compositeIntegration.getProduct(PRODUCT_ID_NOT_FOUND))
-      .thenThrow(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND));
+      .thenReturn(Mono.error(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND)));
+    when(compositeIntegration.getRecommendations(eq(PRODUCT_ID_NOT_FOUND), anyInt())).thenReturn(tagged(emptyList(), null));
+    when(compositeIntegration.getReviews(eq(PRODUCT_ID_NOT_FOUND), anyInt())).thenReturn(tagged(emptyList(), null));
 
     when(compositeIntegration.getProduct(PRODUCT_ID_INVALID))
-      .thenThrow(new InvalidInputException("INVALID: " + PRODUCT_ID_INVALID));
+      .thenReturn(Mono.error(new InvalidInputException("INVALID: " + PRODUCT_ID_INVALID)));
+    when(compositeIntegration.getRecommendations(eq(PRODUCT_ID_INVALID), anyInt())).thenReturn(tagged(emptyList(), null));
+    when(compositeIntegration.getReviews(eq(PRODUCT_ID_INVALID), anyInt())).thenReturn(tagged(emptyList(), null));
+
+    when(compositeIntegration.getProduct(PRODUCT_ID_UNAVAILABLE))
+      .thenReturn(Mono.error(new ServiceUnavailableException("UNAVAILABLE: " + PRODUCT_ID_UNAVAILABLE)));
+    when(compositeIntegration.getRecommendations(eq(PRODUCT_ID_UNAVAILABLE), anyInt())).thenReturn(tagged(emptyList(), null));
+    when(compositeIntegration.getReviews(eq(PRODUCT_ID_UNAVAILABLE), anyInt())).thenReturn(tagged(emptyList(), null));
+
+    when(compositeIntegration.getProduct(PRODUCT_ID_PAGED))
+      .thenReturn(tagged(new Product(PRODUCT_ID_PAGED, "name", 1, "mock-address"), "W/\"p5\""));
+    when(compositeIntegration.getRecommendations(eq(PRODUCT_ID_PAGED), anyInt()))
+      .thenReturn(tagged(asList(
+        new Recommendation(PRODUCT_ID_PAGED, 1, "author", 1, "content", "mock address"),
+        new Recommendation(PRODUCT_ID_PAGED, 2, "author", 1, "content", "mock address"),
+        new Recommendation(PRODUCT_ID_PAGED, 3, "author", 1, "content", "mock address")), "W/\"rec5\""));
+    when(compositeIntegration.getReviews(eq(PRODUCT_ID_PAGED), anyInt()))
+      .thenReturn(tagged(singletonList(new Review(PRODUCT_ID_PAGED, 1, "author", "subject", "content", "mock address")), "W/\"rev5\""));
+
+    when(compositeIntegration.getProducts(anyList()))
+      .thenReturn(Flux.just(new Product(PRODUCT_ID_OK, "name", 1, "mock-address")));
+    when(compositeIntegration.getRecommendations(anyList()))
+      .thenReturn(Flux.just(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock address")));
+    when(compositeIntegration.getReviews(anyList()))
+      .thenReturn(Flux.just(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address")));
+
+    when(compositeIntegration.createProduct(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+    when(compositeIntegration.createRecommendations(anyList()))
+      .thenAnswer(i -> Mono.just(new BatchResult(i.<List<?>>getArgument(0).size(), emptyList())));
+    when(compositeIntegration.createReview(any())).thenAnswer(i -> Mono.just(i.getArgument(0)));
+
+    when(compositeIntegration.deleteProduct(anyInt())).thenReturn(Mono.empty());
+    when(compositeIntegration.deleteRecommendations(anyInt())).thenReturn(Mono.empty());
+    when(compositeIntegration.deleteReviews(anyInt())).thenReturn(Mono.empty());
   }
 
   @Test
@@ -72,6 +168,135 @@ class ProductCompositeServiceApplicationTests {
     postAndVerifyProduct(compositeProduct, OK);
   }
 
+  @Test
+  void createCompositeProductConcurrently() {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maximumInFlight = new AtomicInteger();
+    doAnswer(i -> Mono.defer(() -> {
+        maximumInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        return Mono.just(i.getArgument(0)).delayElement(Duration.ofMillis(50));
+      })
+      .doOnTerminate(inFlight::decrementAndGet))
+      .when(compositeIntegration).createReview(any());
+
+    ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1, null,
+      IntStream.rangeClosed(1, 6).mapToObj(i -> new ReviewSummary(i, "a", "s", "c")).collect(Collectors.toList()),
+      null);
+
+    postAndVerifyProduct(compositeProduct, OK);
+
+    verify(compositeIntegration, times(6)).createReview(any());
+    assertEquals(2, maximumInFlight.get());
+  }
+
+  @Test
+  void createCompositeProductRecommendationsInBatches() {
+    doAnswer(i -> {
+      List<Recommendation> batch = i.getArgument(0);
+      // The recommendations with an even id already exist
+      List<BatchResult.Failure> failures = IntStream.range(0, batch.size())
+        .filter(index -> batch.get(index).getRecommendationId() % 2 == 0)
+        .mapToObj(index -> new BatchResult.Failure(index, "Duplicate key, Product Id: 1, Recommendation Id:" + batch.get(index).getRecommendationId()))
+        .collect(Collectors.toList());
+      return Mono.just(new BatchResult(batch.size() - failures.size(), failures));
+    }).when(compositeIntegration).createRecommendations(anyList());
+
+    ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1,
+      IntStream.rangeClosed(1, 5).mapToObj(i -> new RecommendationSummary(i, "a", 1, "c")).collect(Collectors.toList()),
+      null, null);
+
+    client.post()
+      .uri("/product-composite")
+      .body(just(compositeProduct), ProductAggregate.class)
+      .exchange()
+      .expectStatus().isEqualTo(UNPROCESSABLE_ENTITY)
+      .expectBody()
+      .jsonPath("$.message").value(message -> assertEquals("Failed to create 2 parts of productId: 1, "
+        + "recommendation 2: Duplicate key, Product Id: 1, Recommendation Id:2; "
+        + "recommendation 4: Duplicate key, Product Id: 1, Recommendation Id:4", message));
+
+    // Five recommendations in batches of two
+    verify(compositeIntegration, times(3)).createRecommendations(anyList());
+  }
+
+  @Test
+  void createCompositeProductReportsEachFailedPart() {
+    doAnswer(i -> {
+      Review review = i.getArgument(0);
+      return review.getReviewId() == 2
+        ? Mono.just(review)
+        : Mono.error(new InvalidInputException("Duplicate key, Product Id: 1, Review Id:" + review.getReviewId()));
+    }).when(compositeIntegration).createReview(any());
+
+    ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1,
+      singletonList(new RecommendationSummary(1, "a", 1, "c")),
+      asList(new ReviewSummary(1, "a", "s", "c"), new ReviewSummary(2, "a", "s", "c"), new ReviewSummary(3, "a", "s", "c")),
+      null);
+
+    client.post()
+      .uri("/product-composite")
+      .body(just(compositeProduct), ProductAggregate.class)
+      .exchange()
+      .expectStatus().isEqualTo(UNPROCESSABLE_ENTITY)
+      .expectBody()
+      .jsonPath("$.message").value(message -> assertEquals("Failed to create 2 parts of productId: 1, "
+        + "review 1: Duplicate key, Product Id: 1, Review Id:1; review 3: Duplicate key, Product Id: 1, Review Id:3", message));
+
+    // The parts that did not fail are created all the same
+    verify(compositeIntegration).createRecommendations(anyList());
+    verify(compositeIntegration, times(3)).createReview(any());
+  }
+
+  @Test
+  void createCompositeProductAsync() throws InterruptedException {
+    ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1,
+      singletonList(new RecommendationSummary(1, "a", 1, "c")),
+      singletonList(new ReviewSummary(1, "a", "s", "c")), null);
+
+    ProductCompositeJob job = postAndVerifyProductAsync(compositeProduct, ACCEPTED)
+      .expectHeader().valueMatches(LOCATION, "/product-composite/jobs/.+")
+      .expectBody(ProductCompositeJob.class).returnResult().getResponseBody();
+    assertEquals(PRODUCT_ID_OK, job.getProductId());
+
+    assertEquals(SUCCEEDED, awaitJob(job.getJobId()).getStatus());
+    verify(compositeIntegration).createReview(any());
+  }
+
+  @Test
+  void createCompositeProductAsyncFailed() throws InterruptedException {
+    doReturn(Mono.error(new InvalidInputException("Duplicate key, Product Id: " + PRODUCT_ID_OK)))
+      .when(compositeIntegration).createProduct(any());
+
+    ProductCompositeJob job = postAndVerifyProductAsync(new ProductAggregate(1, "name", 1, null, null, null), ACCEPTED)
+      .expectBody(ProductCompositeJob.class).returnResult().getResponseBody();
+
+    ProductCompositeJob completed = awaitJob(job.getJobId());
+    assertEquals(FAILED, completed.getStatus());
+    assertEquals("Duplicate key, Product Id: " + PRODUCT_ID_OK, completed.getMessage());
+  }
+
+  @Test
+  void createCompositeProductAsyncInvalid() {
+    ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1,
+      asList(new RecommendationSummary(1, "a", 1, "c"), new RecommendationSummary(1, "b", 2, "d")), null, null);
+
+    postAndVerifyProductAsync(compositeProduct, UNPROCESSABLE_ENTITY)
+      .expectBody()
+      .jsonPath("$.message").isEqualTo("Duplicate key, Product Id: 1, Recommendation Id:1");
+    verify(compositeIntegration, never()).createProduct(any());
+  }
+
+  @Test
+  void getProductJobNotFound() {
+    client.get()
+      .uri("/product-composite/jobs/unknown")
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(NOT_FOUND)
+      .expectBody()
+      .jsonPath("$.message").isEqualTo("No job found for jobId: unknown");
+  }
+
   @Test
   void deleteCompositeProduct() {
     ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1,
@@ -109,9 +334,209 @@ class ProductCompositeServiceApplicationTests {
       .jsonPath("$.message").isEqualTo("INVALID: " + PRODUCT_ID_INVALID);
   }
 
+  @Test
+  void getProductServiceUnavailable() {
+
+    getAndVerifyProduct(PRODUCT_ID_UNAVAILABLE, SERVICE_UNAVAILABLE)
+      .jsonPath("$.path").isEqualTo("/product-composite/" + PRODUCT_ID_UNAVAILABLE)
+      .jsonPath("$.message").isEqualTo("UNAVAILABLE: " + PRODUCT_ID_UNAVAILABLE);
+  }
+
+  @Test
+  void getProductWithSelectedFields() {
+
+    getAndVerifyProduct(PRODUCT_ID_OK + "?fields=name,reviews", OK)
+      .jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK)
+      .jsonPath("$.name").isEqualTo("name")
+      .jsonPath("$.reviews.length()").isEqualTo(1)
+      .jsonPath("$.recommendations").doesNotExist()
+      .jsonPath("$.serviceAddresses").doesNotExist();
+
+    verify(compositeIntegration, never()).getRecommendations(eq(PRODUCT_ID_OK), anyInt());
+  }
+
+  @Test
+  void getProductNotModified() {
+
+    String eTag = client.get()
+      .uri("/product-composite/" + PRODUCT_ID_OK)
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isOk()
+      .returnResult(ProductAggregate.class)
+      .getResponseHeaders().getETag();
+
+    client.get()
+      .uri("/product-composite/" + PRODUCT_ID_OK)
+      .accept(APPLICATION_JSON)
+      .ifNoneMatch(eTag)
+      .exchange()
+      .expectStatus().isEqualTo(NOT_MODIFIED)
+      .expectBody().isEmpty();
+
+    // A selection of fields is a different representation, with a tag of its own
+    client.get()
+      .uri("/product-composite/" + PRODUCT_ID_OK + "?fields=name")
+      .accept(APPLICATION_JSON)
+      .ifNoneMatch(eTag)
+      .exchange()
+      .expectStatus().isOk()
+      .expectHeader().valueMatches("ETag", "W/\".+\"");
+  }
+
+  @Test
+  void getProductWithoutTaggedPartsHasNoETag() {
+
+    when(compositeIntegration.getProduct(PRODUCT_ID_UNTAGGED))
+      .thenReturn(tagged(new Product(PRODUCT_ID_UNTAGGED, "name", 1, "mock-address"), "W/\"p6\""));
+    when(compositeIntegration.getRecommendations(eq(PRODUCT_ID_UNTAGGED), anyInt())).thenReturn(tagged(emptyList(), "W/\"rec6\""));
+    when(compositeIntegration.getReviews(eq(PRODUCT_ID_UNTAGGED), anyInt())).thenReturn(tagged(emptyList(), null));
+
+    client.get()
+      .uri("/product-composite/" + PRODUCT_ID_UNTAGGED)
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isOk()
+      .expectHeader().doesNotExist("ETag");
+  }
+
+  @Test
+  void getProductCompressed() throws IOException {
+
+    // The client of the application context asks for and decompresses gzip itself, this one leaves the body as sent
+    WebTestClient rawClient = WebTestClient.bindToServer(new ReactorClientHttpConnector(HttpClient.create()))
+      .baseUrl("http://localhost:" + port)
+      .build();
+
+    byte[] body = rawClient.get()
+      .uri("/product-composite/" + PRODUCT_ID_PAGED)
+      .accept(APPLICATION_JSON)
+      .header(ACCEPT_ENCODING, "gzip")
+      .exchange()
+      .expectStatus().isOk()
+      .expectHeader().valueEquals(CONTENT_ENCODING, "gzip")
+      .expectHeader().valueEquals(VARY, ACCEPT_ENCODING)
+      .expectBody().returnResult().getResponseBody();
+
+    try (InputStream json = new GZIPInputStream(new ByteArrayInputStream(body))) {
+      assertEquals(PRODUCT_ID_PAGED, new ObjectMapper().readTree(json).get("productId").asInt());
+    }
+
+    // Responses below the minimum size are not compressed
+    rawClient.get()
+      .uri("/product-composite/" + PRODUCT_ID_NOT_FOUND)
+      .accept(APPLICATION_JSON)
+      .header(ACCEPT_ENCODING, "gzip")
+      .exchange()
+      .expectStatus().isEqualTo(NOT_FOUND)
+      .expectHeader().doesNotExist(CONTENT_ENCODING);
+  }
+
+  @Test
+  void getProductWithCursor() {
+
+    getAndVerifyProduct(PRODUCT_ID_PAGED, OK)
+      .jsonPath("$.recommendations.length()").isEqualTo(2)
+      .jsonPath("$.recommendations[1].recommendationId").isEqualTo(2)
+      .jsonPath("$.recommendationsCursor").isEqualTo(2)
+      .jsonPath("$.reviews.length()").isEqualTo(1)
+      .jsonPath("$.reviewsCursor").doesNotExist();
+
+    verify(compositeIntegration).getRecommendations(PRODUCT_ID_PAGED, 3);
+  }
+
+  @Test
+  void getProductReviewsPage() {
+
+    client.get()
+      .uri("/product-composite/" + PRODUCT_ID_OK + "/reviews?after=2")
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isOk()
+      .expectBody()
+      .jsonPath("$.length()").isEqualTo(1)
+      .jsonPath("$[0].reviewId").isEqualTo(3);
+
+    verify(compositeIntegration).getReviews(PRODUCT_ID_OK, 2, 2);
+  }
+
+  @Test
+  void getProductWithInvalidField() {
+
+    getAndVerifyProduct(PRODUCT_ID_OK + "?fields=name,price", UNPROCESSABLE_ENTITY)
+      .jsonPath("$.message").isEqualTo("Invalid field: price, expected productId, name, weight, recommendations, reviews or serviceAddresses");
+  }
+
+  @Test
+  void getProductStream() {
+
+    Flux<ProductAggregatePart> parts = client.get()
+      .uri("/product-composite/" + PRODUCT_ID_OK + "/stream")
+      .accept(APPLICATION_NDJSON)
+      .exchange()
+      .expectStatus().isOk()
+      .expectHeader().contentTypeCompatibleWith(APPLICATION_NDJSON)
+      .returnResult(ProductAggregatePart.class)
+      .getResponseBody();
+
+    StepVerifier.create(parts)
+      .assertNext(part -> {
+        assertEquals(ProductAggregatePart.Type.PRODUCT, part.getType());
+        assertEquals("name", part.getName());
+      })
+      .expectNextCount(4)
+      .verifyComplete();
+  }
+
+  @Test
+  void getProductStreamNotFound() {
+
+    client.get()
+      .uri("/product-composite/" + PRODUCT_ID_NOT_FOUND + "/stream")
+      .accept(APPLICATION_NDJSON)
+      .exchange()
+      .expectStatus().isEqualTo(NOT_FOUND)
+      .expectBody()
+      .jsonPath("$.message").isEqualTo("NOT FOUND: " + PRODUCT_ID_NOT_FOUND);
+  }
+
+  @Test
+  void getProductsByIds() {
+
+    getAndVerifyProducts("?ids=" + PRODUCT_ID_NOT_FOUND + "," + PRODUCT_ID_OK, OK)
+      .jsonPath("$.length()").isEqualTo(1)
+      .jsonPath("$[0].productId").isEqualTo(PRODUCT_ID_OK)
+      .jsonPath("$[0].recommendations.length()").isEqualTo(1)
+      .jsonPath("$[0].reviews.length()").isEqualTo(1);
+  }
+
+  @Test
+  void getProductsTooManyIds() {
+
+    String ids = IntStream.rangeClosed(1, 201).mapToObj(String::valueOf).collect(Collectors.joining(","));
+
+    getAndVerifyProducts("?ids=" + ids, UNPROCESSABLE_ENTITY)
+      .jsonPath("$.path").isEqualTo("/product-composite")
+      .jsonPath("$.message").isEqualTo("Invalid number of productIds: 201, expected 1 to 200");
+  }
+
+  private WebTestClient.BodyContentSpec getAndVerifyProducts(String idsQuery, HttpStatus expectedStatus) {
+    return client.get()
+      .uri("/product-composite" + idsQuery)
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(expectedStatus)
+      .expectHeader().contentType(APPLICATION_JSON)
+      .expectBody();
+  }
+
   private WebTestClient.BodyContentSpec getAndVerifyProduct(int productId, HttpStatus expectedStatus) {
+    return getAndVerifyProduct(String.valueOf(productId), expectedStatus);
+  }
+
+  private WebTestClient.BodyContentSpec getAndVerifyProduct(String productIdPath, HttpStatus expectedStatus) {
     return client.get()
-      .uri("/product-composite/" + productId)
+      .uri("/product-composite/" + productIdPath)
       .accept(APPLICATION_JSON)
       .exchange()
       .expectStatus().isEqualTo(expectedStatus)
@@ -127,6 +552,37 @@ class ProductCompositeServiceApplicationTests {
       .expectStatus().isEqualTo(expectedStatus);
   }
 
+  private WebTestClient.ResponseSpec postAndVerifyProductAsync(ProductAggregate compositeProduct, HttpStatus expectedStatus) {
+    return client.post()
+      .uri("/product-composite/jobs")
+      .body(just(compositeProduct), ProductAggregate.class)
+      .exchange()
+      .expectStatus().isEqualTo(expectedStatus);
+  }
+
+  /**
+   * Polls the status of the job until it completed.
+   */
+  private ProductCompositeJob awaitJob(String jobId) throws InterruptedException {
+    for (int i = 0; i < 100; i++) {
+      ProductCompositeJob job = client.get()
+        .uri("/product-composite/jobs/" + jobId)
+        .accept(APPLICATION_JSON)
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(ProductCompositeJob.class).returnResult().getResponseBody();
+      if (job.getStatus() == SUCCEEDED || job.getStatus() == FAILED) {
+        return job;
+      }
+      Thread.sleep(50);
+    }
+    throw new AssertionError("Job " + jobId + " did not complete");
+  }
+
+  private static <T> Mono<Tagged<T>> tagged(T value, String eTag) {
+    return Mono.just(new Tagged<>(value, eTag));
+  }
+
   private void deleteAndVerifyProduct(int productId, HttpStatus expectedStatus) {
     client.delete()
       .uri("/product-composite/" + productId)
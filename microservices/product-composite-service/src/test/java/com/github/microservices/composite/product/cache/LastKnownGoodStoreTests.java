@@ -0,0 +1,76 @@
+package com.github.microservices.composite.product.cache;
+
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import com.github.api.core.recommendation.Recommendation;
+import com.github.api.core.review.Review;
+import com.github.microservices.composite.product.cache.LastKnownGoodStore.Snapshot;
+
+class LastKnownGoodStoreTests {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private LastKnownGoodStore store;
+
+  @BeforeEach
+  void setUp() {
+    store = new LastKnownGoodStore(registry, Duration.ofMillis(100), DataSize.ofMegabytes(1), Duration.ofHours(1));
+  }
+
+  @Test
+  void returnsEmptyListWithoutLastKnownGood() {
+    Snapshot<List<Review>> snapshot = store.getReviews(1, Mono.error(new IllegalStateException())).block();
+
+    assertTrue(snapshot.getValue().isEmpty());
+    assertFalse(snapshot.isStale());
+  }
+
+  @Test
+  void returnsLastKnownGoodOnError() {
+    store.getReviews(1, Mono.just(singletonList(review("first")))).block();
+
+    Snapshot<List<Review>> snapshot = store.getReviews(1, Mono.error(new IllegalStateException())).block();
+
+    assertEquals("first", snapshot.getValue().get(0).getSubject());
+    assertTrue(snapshot.isStale());
+    assertEquals(1.0, registry.counter("product-composite.stale-responses", "part", "reviews").count());
+  }
+
+  @Test
+  void returnsLastKnownGoodOnTimeoutAndRevalidates() {
+    store.getRecommendations(1, Mono.just(singletonList(recommendation("first")))).block();
+
+    Sinks.One<List<Recommendation>> slowCall = Sinks.one();
+    AtomicInteger calls = new AtomicInteger();
+    Snapshot<List<Recommendation>> snapshot = store.getRecommendations(1, slowCall.asMono()
+      .doOnSubscribe(subscription -> calls.incrementAndGet())).block();
+
+    assertEquals("first", snapshot.getValue().get(0).getContent());
+    assertTrue(snapshot.isStale());
+
+    // The late response of the same call replaces the last known good copy
+    slowCall.tryEmitValue(singletonList(recommendation("second")));
+    assertEquals(1, calls.get());
+
+    snapshot = store.getRecommendations(1, Mono.error(new IllegalStateException())).block();
+    assertEquals("second", snapshot.getValue().get(0).getContent());
+  }
+
+  private Review review(String subject) {
+    return new Review(1, 1, "a", subject, "c", "sa");
+  }
+
+  private Recommendation recommendation(String content) {
+    return new Recommendation(1, 1, "a", 1, content, "sa");
+  }
+}
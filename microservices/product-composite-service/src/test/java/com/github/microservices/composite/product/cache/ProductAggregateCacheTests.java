@@ -0,0 +1,90 @@
+package com.github.microservices.composite.product.cache;
+
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import com.github.api.composite.product.ProductAggregate;
+import com.github.api.composite.product.RecommendationSummary;
+import com.github.api.composite.product.ReviewSummary;
+
+class ProductAggregateCacheTests {
+
+  private final AtomicLong nanos = new AtomicLong();
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private final IntFunction<Mono<ProductAggregate>> loader = productId -> Mono.fromCallable(() -> {
+    int load = loads.incrementAndGet();
+    return new ProductAggregate(productId, "name " + load, 1,
+      singletonList(new RecommendationSummary(1, "a", 1, "c")),
+      singletonList(new ReviewSummary(1, "a", "s", "c")), null);
+  });
+
+  private ProductAggregateCache cache;
+
+  @BeforeEach
+  void setUp() {
+    cache = new ProductAggregateCache(new SimpleMeterRegistry(), DataSize.ofMegabytes(1),
+      Duration.ofMinutes(5), Duration.ofSeconds(10), Duration.ofMinutes(1), nanos::get);
+  }
+
+  @Test
+  void cachesAggregates() {
+    assertEquals("name 1", cache.get(1, loader).block().getName());
+    assertEquals("name 1", cache.get(1, loader).block().getName());
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void invalidateRemovesAggregate() {
+    cache.get(1, loader).block();
+    cache.invalidate(1);
+
+    assertEquals("name 2", cache.get(1, loader).block().getName());
+  }
+
+  @Test
+  void expiresAggregates() {
+    cache.get(1, loader).block();
+    nanos.addAndGet(Duration.ofMinutes(6).toNanos());
+
+    assertEquals("name 2", cache.get(1, loader).block().getName());
+  }
+
+  @Test
+  void expiresPartialAggregatesSooner() {
+    IntFunction<Mono<ProductAggregate>> partialLoader = productId -> Mono.fromCallable(() ->
+      new ProductAggregate(productId, "partial " + loads.incrementAndGet(), 1, singletonList(new RecommendationSummary(1, "a", 1, "c")), null, null));
+
+    cache.get(1, partialLoader).block();
+    nanos.addAndGet(Duration.ofSeconds(11).toNanos());
+
+    assertEquals("partial 2", cache.get(1, partialLoader).block().getName());
+  }
+
+  @Test
+  void refreshesAheadOfExpiry() {
+    cache.get(1, loader).block();
+    nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+
+    // The cached aggregate is served while it is refreshed in the background
+    assertEquals("name 1", cache.get(1, loader).block().getName());
+    assertEquals("name 2", cache.get(1, loader).block().getName());
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void doesNotCacheFailures() {
+    assertThrows(IllegalStateException.class, () -> cache.get(1, productId -> Mono.error(new IllegalStateException())).block());
+
+    assertEquals("name 1", cache.get(1, loader).block().getName());
+  }
+}
@@ -0,0 +1,78 @@
+package com.github.microservices.composite.product.codec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.MimeTypeUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import com.github.api.composite.product.ProductAggregate;
+import com.github.api.composite.product.RecommendationSummary;
+import com.github.api.composite.product.ReviewSummary;
+import com.github.api.composite.product.ServiceAddresses;
+import com.github.api.core.recommendation.Recommendation;
+import com.github.api.core.review.Review;
+
+class ProductAggregateEncoderTests {
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final ProductAggregateEncoder encoder = new ProductAggregateEncoder(mapper.getFactory());
+
+  private final ResolvableType type = ResolvableType.forClass(ProductAggregate.class);
+
+  @Test
+  void writesTheSameJsonAsJackson() throws Exception {
+    ProductAggregate aggregate = new ProductAggregate(1, "name", 2,
+      singletonList(new RecommendationSummary(1, "author", 3, null)),
+      singletonList(new ReviewSummary(1, "author", "subject", "content")),
+      new ServiceAddresses("cmp", "pro", null, "rec"), true);
+
+    assertEquals(mapper.writeValueAsString(aggregate), encode(Mono.just(aggregate)));
+  }
+
+  @Test
+  void writesAssembledAggregatesFromTheReceivedItems() throws Exception {
+    AssembledProductAggregate aggregate = new AssembledProductAggregate(1, null, 2,
+      singletonList(new Recommendation(1, 1, "author", 3, "content", "rec")), null,
+      asList(new Review(1, 1, "author", "subject", "content", "rev"), new Review(1, 2, "a", "s", "c", "rev")), 2,
+      null, false, null);
+
+    String json = encode(Mono.just(aggregate));
+
+    assertEquals(mapper.writeValueAsString(aggregate), json);
+    assertFalse(json.contains("serviceAddress"));
+    assertFalse(json.contains("recommendationsCursor"));
+    assertTrue(json.contains("\"reviewsCursor\":2"));
+  }
+
+  @Test
+  void writesFluxesAsArrays() throws Exception {
+    ProductAggregate first = new ProductAggregate(1, "first", 1, null, null, null);
+    ProductAggregate second = new ProductAggregate(2, "second", 2, null, null, null);
+
+    assertEquals(mapper.writeValueAsString(asList(first, second)), encode(Flux.just(first, second)));
+    assertEquals("[]", encode(Flux.empty()));
+  }
+
+  @Test
+  void encodesProductAggregatesAsJsonOnly() {
+    assertTrue(encoder.canEncode(ResolvableType.forClass(AssembledProductAggregate.class), MimeTypeUtils.APPLICATION_JSON));
+    assertFalse(encoder.canEncode(ResolvableType.forClass(Object.class), MimeTypeUtils.APPLICATION_JSON));
+    assertFalse(encoder.canEncode(type, MimeTypeUtils.APPLICATION_XML));
+  }
+
+  private String encode(Publisher<ProductAggregate> input) {
+    DataBuffer joined = DataBufferUtils.join(
+      encoder.encode(input, DefaultDataBufferFactory.sharedInstance, type, MimeTypeUtils.APPLICATION_JSON, null)).block();
+    return joined == null ? "" : joined.toString(UTF_8);
+  }
+}
@@ -0,0 +1,134 @@
+package com.github.microservices.composite.product.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import com.github.api.exceptions.NotFoundException;
+import com.github.api.exceptions.ServiceUnavailableException;
+
+class CircuitBreakerTests {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final AtomicLong nanos = new AtomicLong();
+  private final AtomicInteger calls = new AtomicInteger();
+
+  private CircuitBreaker circuitBreaker;
+
+  @BeforeEach
+  void setUp() {
+    circuitBreaker = new CircuitBreaker("review", registry, 10, 4, 50, 100, Duration.ofSeconds(1),
+      Duration.ofSeconds(10), 2, nanos::get);
+  }
+
+  @Test
+  void opensOnFailureRateAndFailsFast() {
+    failures(4);
+
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+    StepVerifier.create(circuitBreaker.execute(call(Mono.just("ok"))))
+      .verifyError(ServiceUnavailableException.class);
+    assertEquals(4, calls.get());
+    assertEquals(1.0, registry.counter("product-composite.circuit-breaker.transitions",
+      "service", "review", "from", "closed", "to", "open").count());
+  }
+
+  @Test
+  void opensOnSlowCallRate() {
+    for (int i = 0; i < 4; i++) {
+      circuitBreaker.execute(call(Mono.fromCallable(() -> {
+        nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+        return "slow";
+      }))).block();
+    }
+
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+  }
+
+  @Test
+  void cancelledSlowCallsAreSlowCalls() {
+    for (int i = 0; i < 4; i++) {
+      // A hedge that lost, cancelled quickly, is not counted
+      circuitBreaker.execute(Mono.never()).subscribe().dispose();
+    }
+    for (int i = 0; i < 4; i++) {
+      Disposable slow = circuitBreaker.execute(Mono.never()).subscribe();
+      nanos.addAndGet(Duration.ofSeconds(2).toNanos());
+      slow.dispose();
+    }
+
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+  }
+
+  @Test
+  void notFoundIsNotAFailure() {
+    for (int i = 0; i < 4; i++) {
+      StepVerifier.create(circuitBreaker.execute(call(Mono.error(new NotFoundException()))))
+        .verifyError(NotFoundException.class);
+    }
+
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  void closesAfterSuccessfulTrialCalls() {
+    failures(4);
+    nanos.addAndGet(Duration.ofSeconds(11).toNanos());
+
+    circuitBreaker.execute(call(Mono.just("ok"))).block();
+    assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+    circuitBreaker.execute(call(Mono.just("ok"))).block();
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  void reopensAfterFailedTrialCalls() {
+    failures(4);
+    nanos.addAndGet(Duration.ofSeconds(11).toNanos());
+
+    failures(2);
+
+    assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+  }
+
+  @Test
+  void rejectedTrialCallsAreNotCounted() {
+    failures(4);
+    nanos.addAndGet(Duration.ofSeconds(11).toNanos());
+
+    // The concurrency limiter rejects the trial calls before they reach the service
+    for (int i = 0; i < 4; i++) {
+      StepVerifier.create(circuitBreaker.execute(call(Mono.error(ServiceUnavailableException.withoutStackTrace("limited")))))
+        .verifyErrorMessage("limited");
+    }
+    assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+    // The permits of the rejected calls are released, the next trial calls are let through
+    circuitBreaker.execute(call(Mono.just("ok"))).block();
+    circuitBreaker.execute(call(Mono.just("ok"))).block();
+    assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+  }
+
+  private void failures(int count) {
+    for (int i = 0; i < count; i++) {
+      StepVerifier.create(circuitBreaker.execute(call(Mono.error(new IllegalStateException("down")))))
+        .verifyErrorMessage("down");
+    }
+  }
+
+  private <T> Mono<T> call(Mono<T> response) {
+    return Mono.defer(() -> {
+      calls.incrementAndGet();
+      return response;
+    });
+  }
+}
@@ -0,0 +1,84 @@
+package com.github.microservices.composite.product.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import com.github.api.exceptions.ServiceUnavailableException;
+
+class ConcurrencyLimiterTests {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final AtomicLong nanos = new AtomicLong();
+
+  private ConcurrencyLimiter limiter;
+
+  @BeforeEach
+  void setUp() {
+    limiter = new ConcurrencyLimiter("product", registry, 2, 1, 10, 0.5, 1000, nanos::get);
+  }
+
+  @Test
+  void rejectsCallsAboveTheLimit() {
+    Sinks.One<String> response = Sinks.one();
+
+    limiter.execute(response.asMono()).subscribe();
+    limiter.execute(response.asMono()).subscribe();
+    assertEquals(2, limiter.getInFlight());
+
+    StepVerifier.create(limiter.execute(Mono.just("ok")))
+      .verifyError(ServiceUnavailableException.class);
+    assertEquals(1.0, registry.counter("product-composite.concurrency.rejected", "service", "product").count());
+
+    response.tryEmitValue("ok");
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  void growsWhileResponseTimesAreStable() {
+    for (int i = 0; i < 5; i++) {
+      Sinks.One<String> first = Sinks.one();
+      Sinks.One<String> second = Sinks.one();
+      limiter.execute(first.asMono()).subscribe();
+      limiter.execute(second.asMono()).subscribe();
+      nanos.addAndGet(Duration.ofMillis(10).toNanos());
+      first.tryEmitValue("ok");
+      second.tryEmitValue("ok");
+    }
+
+    assertTrue(limiter.getLimit() > 2);
+  }
+
+  @Test
+  void shrinksWhenResponseTimesGrow() {
+    limiter = new ConcurrencyLimiter("product", registry, 10, 1, 10, 0.5, 1000, nanos::get);
+    callsInFlight(10, Duration.ofMillis(10));
+
+    callsInFlight(10, Duration.ofMillis(100));
+
+    assertTrue(limiter.getLimit() < 10);
+  }
+
+  @Test
+  void backsOffOnFailures() {
+    StepVerifier.create(limiter.execute(Mono.error(new IllegalStateException("down"))))
+      .verifyErrorMessage("down");
+
+    assertEquals(1, limiter.getLimit());
+  }
+
+  private void callsInFlight(int count, Duration rtt) {
+    Sinks.Empty<Void> response = Sinks.empty();
+    for (int i = 0; i < count; i++) {
+      limiter.execute(response.asMono()).subscribe();
+    }
+    nanos.addAndGet(rtt.toNanos());
+    response.tryEmitEmpty();
+  }
+}
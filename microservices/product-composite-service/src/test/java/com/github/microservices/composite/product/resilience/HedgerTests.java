@@ -0,0 +1,72 @@
+package com.github.microservices.composite.product.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+class HedgerTests {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @Test
+  void fastCallsAreNotHedged() {
+    Hedger hedger = hedger(new TokenBucket(0.1, 10));
+
+    assertEquals("response 1", hedger.execute(() -> call(Duration.ZERO)).block());
+
+    assertEquals(1, calls.get());
+    assertEquals(0.0, registry.counter("product-composite.hedge.hedges", "service", "product").count());
+  }
+
+  @Test
+  void slowCallsAreHedgedAndTheFirstResponseWins() {
+    Hedger hedger = hedger(new TokenBucket(0.1, 10));
+
+    // The first call never responds, the hedge does
+    StepVerifier.create(hedger.execute(() -> calls.incrementAndGet() == 1 ? Mono.never() : Mono.just("hedge")))
+      .expectNext("hedge")
+      .verifyComplete();
+
+    assertEquals(2, calls.get());
+    assertEquals(1.0, registry.counter("product-composite.hedge.hedges", "service", "product").count());
+    assertEquals(1.0, registry.counter("product-composite.hedge.wins", "service", "product").count());
+  }
+
+  @Test
+  void hedgesAreLimitedByTheBudget() {
+    Hedger hedger = hedger(new TokenBucket(0.0, 1));
+
+    hedger.execute(() -> call(Duration.ofMillis(200))).block();
+    hedger.execute(() -> call(Duration.ofMillis(200))).block();
+
+    assertEquals(3, calls.get());
+    assertEquals(1.0, registry.counter("product-composite.hedge.rejected", "service", "product").count());
+  }
+
+  @Test
+  void tokenBucketRefillsPerCall() {
+    TokenBucket bucket = new TokenBucket(0.5, 1);
+
+    assertTrue(bucket.tryWithdraw());
+    assertFalse(bucket.tryWithdraw());
+
+    bucket.deposit();
+    bucket.deposit();
+    assertTrue(bucket.tryWithdraw());
+  }
+
+  private Hedger hedger(TokenBucket budget) {
+    return new Hedger("product", registry, true, 95, Duration.ofMillis(10), Duration.ofMillis(50), budget);
+  }
+
+  private Mono<String> call(Duration latency) {
+    return Mono.defer(() -> Mono.just("response " + calls.incrementAndGet()).delayElement(latency));
+  }
+}
@@ -0,0 +1,132 @@
+package com.github.microservices.composite.product.resilience;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import com.github.api.exceptions.NotFoundException;
+
+class LoadBalancerTests {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final AtomicLong nanos = new AtomicLong();
+
+  private LoadBalancer loadBalancer;
+
+  @BeforeEach
+  void setUp() {
+    loadBalancer = new LoadBalancer("review", registry, 0.5, 4, 50, 3, Duration.ofSeconds(10),
+      Duration.ofSeconds(30), 50, nanos::get);
+    loadBalancer.update(asList("a:1", "b:1", "c:1", "d:1"));
+  }
+
+  @Test
+  void callsGoToTheLessLoadedInstance() {
+    loadBalancer.update(asList("a:1", "b:1"));
+
+    String[] busy = new String[1];
+    Disposable inFlight = loadBalancer.execute(instance -> {
+      busy[0] = instance;
+      return Mono.never();
+    }).subscribe();
+
+    for (int i = 0; i < 10; i++) {
+      assertNotEquals(busy[0], call(instance -> Mono.just(instance)));
+    }
+    inFlight.dispose();
+  }
+
+  @Test
+  void failingInstancesAreEjected() {
+    Map<String, Integer> calls = callMany(100, instance -> instance.endsWith("a:1")
+      ? Mono.error(new IllegalStateException("failed"))
+      : Mono.just(instance));
+
+    assertTrue(loadBalancer.isEjected("a:1"));
+    assertTrue(calls.get("http://a:1") < 10);
+    assertEquals(1.0, registry.counter("product-composite.load-balancer.ejections", "service", "review", "instance", "a:1").count());
+
+    // The instance returns after the ejection time
+    nanos.addAndGet(Duration.ofSeconds(11).toNanos());
+    assertFalse(loadBalancer.isEjected("a:1"));
+  }
+
+  @Test
+  void notFoundIsNotAFailure() {
+    callMany(100, instance -> Mono.error(new NotFoundException("not found")));
+
+    assertFalse(loadBalancer.isEjected("a:1"));
+  }
+
+  @Test
+  void slowInstancesAreEjected() {
+    // Instance b slows down once all instances have enough calls, before that it is as fast as the others. An instance
+    // that is slow from the start gets too few calls to be compared and is avoided rather than ejected
+    AtomicLong calls = new AtomicLong();
+    callMany(120, instance -> Mono.fromCallable(() -> {
+      boolean slow = calls.incrementAndGet() > 60 && instance.endsWith("b:1");
+      nanos.addAndGet(slow ? 500_000_000 : 50_000_000);
+      return instance;
+    }));
+
+    assertTrue(loadBalancer.isEjected("b:1"));
+    assertFalse(loadBalancer.isEjected("a:1"));
+  }
+
+  @Test
+  void cancelledCallsAreNotSuccesses() {
+    loadBalancer.update(asList("a:1"));
+
+    for (int i = 0; i < 10; i++) {
+      // E.g. a hedge that lost
+      loadBalancer.execute(instance -> Mono.never()).subscribe().dispose();
+    }
+    assertEquals(0.0, registry.counter("product-composite.load-balancer.calls",
+      "service", "review", "instance", "a:1", "outcome", "success").count());
+  }
+
+  @Test
+  void atMostTheMaximumPercentIsEjected() {
+    callMany(200, instance -> Mono.error(new IllegalStateException("failed")));
+
+    long ejected = loadBalancer.getAddresses().stream().filter(loadBalancer::isEjected).count();
+    assertEquals(2, ejected);
+  }
+
+  @Test
+  void updatedInstancesKeepTheirState() {
+    callMany(100, instance -> instance.endsWith("a:1")
+      ? Mono.error(new IllegalStateException("failed"))
+      : Mono.just(instance));
+
+    loadBalancer.update(asList("a:1", "b:1", "e:1"));
+
+    assertEquals(asList("a:1", "b:1", "e:1"), loadBalancer.getAddresses());
+    assertTrue(loadBalancer.isEjected("a:1"));
+    assertNull(registry.find("product-composite.load-balancer.outstanding").tag("instance", "c:1").gauge());
+  }
+
+  private String call(Function<String, Mono<String>> call) {
+    return loadBalancer.execute(call).block();
+  }
+
+  private Map<String, Integer> callMany(int n, Function<String, Mono<String>> call) {
+    Map<String, Integer> calls = new HashMap<>();
+    for (int i = 0; i < n; i++) {
+      loadBalancer.execute(instance -> {
+        calls.merge(instance, 1, Integer::sum);
+        return call.apply(instance);
+      }).onErrorResume(error -> Mono.empty()).block();
+    }
+    return calls;
+  }
+}
@@ -0,0 +1,105 @@
+package com.github.microservices.composite.product.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import com.github.api.exceptions.NotFoundException;
+
+class RetrierTests {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private final AtomicInteger calls = new AtomicInteger();
+
+  @Test
+  void transientFailuresAreRetried() {
+    Retrier retrier = retrier(new TokenBucket(0.1, 10));
+
+    StepVerifier.create(retrier.execute(failing(2, Mono.just("response"))))
+      .expectNext("response")
+      .verifyComplete();
+
+    assertEquals(3, calls.get());
+    assertEquals(2.0, registry.counter("product-composite.retry.retries", "service", "product").count());
+    assertEquals(1.0, registry.counter("product-composite.retry.succeeded", "service", "product").count());
+  }
+
+  @Test
+  void theLastErrorIsReturnedWhenTheAttemptsAreExhausted() {
+    Retrier retrier = retrier(new TokenBucket(0.1, 10));
+
+    StepVerifier.create(retrier.execute(failing(5, Mono.just("response"))))
+      .expectErrorMatches(error -> error instanceof WebClientResponseException
+        && ((WebClientResponseException) error).getRawStatusCode() == 503)
+      .verify();
+
+    assertEquals(3, calls.get());
+    assertEquals(2.0, registry.counter("product-composite.retry.retries", "service", "product").count());
+  }
+
+  @Test
+  void otherFailuresAreNotRetried() {
+    Retrier retrier = retrier(new TokenBucket(0.1, 10));
+
+    StepVerifier.create(retrier.execute(Mono.defer(() -> {
+        calls.incrementAndGet();
+        return Mono.error(new NotFoundException("not found"));
+      })))
+      .expectError(NotFoundException.class)
+      .verify();
+
+    assertEquals(1, calls.get());
+  }
+
+  @Test
+  void retriesAreLimitedByTheBudget() {
+    Retrier retrier = retrier(new TokenBucket(0.0, 1));
+
+    StepVerifier.create(retrier.execute(failing(5, Mono.just("response"))))
+      .expectError(WebClientResponseException.class)
+      .verify();
+
+    assertEquals(2, calls.get());
+    assertEquals(1.0, registry.counter("product-composite.retry.retries", "service", "product").count());
+    assertEquals(1.0, registry.counter("product-composite.retry.denied", "service", "product").count());
+  }
+
+  @Test
+  void streamsAreNotRetriedOnceTheyEmitted() {
+    Retrier retrier = retrier(new TokenBucket(0.1, 10));
+
+    Flux<String> call = Flux.defer(() -> {
+      calls.incrementAndGet();
+      return Flux.just("first").concatWith(Flux.error(unavailable()));
+    });
+    StepVerifier.create(retrier.executeMany(call))
+      .expectNext("first")
+      .expectError(WebClientResponseException.class)
+      .verify();
+
+    assertEquals(1, calls.get());
+  }
+
+  private Retrier retrier(TokenBucket budget) {
+    return new Retrier("product", registry, 3, Duration.ofMillis(1), Duration.ofMillis(10), 0.5, budget);
+  }
+
+  /**
+   * @return a call that is unavailable the given number of times before it responds
+   */
+  private <T> Mono<T> failing(int failures, Mono<T> response) {
+    return Mono.defer(() -> calls.incrementAndGet() <= failures ? Mono.error(unavailable()) : response);
+  }
+
+  private static WebClientResponseException unavailable() {
+    return WebClientResponseException.create(HttpStatus.SERVICE_UNAVAILABLE.value(), "Service Unavailable", null, null, null);
+  }
+}
@@ -0,0 +1,40 @@
+package com.github.microservices.composite.product.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import com.github.util.http.HttpErrorInfo;
+
+class ErrorMessageTests {
+
+  private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+  private final ObjectMapper smile = Jackson2ObjectMapperBuilder.smile().build();
+
+  @Test
+  void messageIsReadFromJsonAndSmile() throws IOException {
+    HttpErrorInfo error = new HttpErrorInfo(HttpStatus.NOT_FOUND, "/product/13", "No product found for productId: 13");
+
+    assertEquals("No product found for productId: 13",
+      ProductCompositeIntegration.readErrorMessage(json.getFactory(), json.writeValueAsBytes(error)));
+    assertEquals("No product found for productId: 13",
+      ProductCompositeIntegration.readErrorMessage(smile.getFactory(), smile.writeValueAsBytes(error)));
+  }
+
+  @Test
+  void nestedFieldsAreSkipped() throws IOException {
+    byte[] body = "{\"details\":{\"message\":\"nested\"},\"items\":[1,{\"message\":\"x\"}],\"message\":\"top\"}".getBytes();
+
+    assertEquals("top", ProductCompositeIntegration.readErrorMessage(json.getFactory(), body));
+  }
+
+  @Test
+  void bodiesWithoutMessageHaveNone() throws IOException {
+    assertNull(ProductCompositeIntegration.readErrorMessage(json.getFactory(), "{\"status\":404}".getBytes()));
+    assertNull(ProductCompositeIntegration.readErrorMessage(json.getFactory(), "[]".getBytes()));
+    assertNull(ProductCompositeIntegration.readErrorMessage(json.getFactory(), new byte[0]));
+  }
+}
@@ -0,0 +1,53 @@
+package com.github.microservices.composite.product.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+
+class RevalidatorTests {
+
+  private final Revalidator<String> revalidator = new Revalidator<>(100);
+
+  private final List<String> sentTags = new ArrayList<>();
+
+  @Test
+  void notModifiedResponsesAreServedFromTheKeptValue() {
+    Tagged<String> first = revalidator.execute(1, eTag -> call(eTag, ResponseEntity.ok().eTag("v1").body("product 1"))).block();
+    Tagged<String> second = revalidator.execute(1, eTag -> call(eTag, ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag("v1").build())).block();
+
+    assertSame(first, second);
+    assertEquals("product 1", second.getValue());
+    assertEquals("\"v1\"", second.getEntityTag());
+    assertEquals("[null, \"v1\"]", sentTags.toString());
+  }
+
+  @Test
+  void modifiedResponsesReplaceTheKeptValue() {
+    revalidator.execute(1, eTag -> call(eTag, ResponseEntity.ok().eTag("v1").body("product 1"))).block();
+    revalidator.execute(1, eTag -> call(eTag, ResponseEntity.ok().eTag("v2").body("product 2"))).block();
+    revalidator.execute(1, eTag -> call(eTag, ResponseEntity.ok().body("product 3"))).block();
+    revalidator.execute(1, eTag -> call(eTag, ResponseEntity.ok().body("product 3"))).block();
+
+    assertEquals("[null, \"v1\", \"v2\", null]", sentTags.toString());
+  }
+
+  @Test
+  void invalidatedValuesAreNotRevalidated() {
+    revalidator.execute(1, eTag -> call(eTag, ResponseEntity.ok().eTag("v1").body("product 1"))).block();
+    revalidator.invalidate(1);
+    revalidator.execute(1, eTag -> call(eTag, ResponseEntity.ok().eTag("v1").body("product 1"))).block();
+    revalidator.execute(2, eTag -> call(eTag, ResponseEntity.ok().eTag("v1").body("product 2"))).block();
+
+    assertEquals("[null, null, null]", sentTags.toString());
+  }
+
+  private Mono<ResponseEntity<String>> call(String eTag, ResponseEntity<String> response) {
+    sentTags.add(eTag);
+    return Mono.just(response);
+  }
+}
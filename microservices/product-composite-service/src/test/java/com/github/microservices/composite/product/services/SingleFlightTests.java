@@ -0,0 +1,105 @@
+package com.github.microservices.composite.product.services;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class SingleFlightTests {
+
+  private final SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+
+  private final AtomicInteger calls = new AtomicInteger();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maximumInFlight = new AtomicInteger();
+
+  @Test
+  void concurrentCallsShareOneDownstreamCall() {
+    Sinks.One<String> response = Sinks.one();
+
+    Mono<String> first = singleFlight.execute(1, () -> call(response.asMono()));
+    Mono<String> second = singleFlight.execute(1, () -> call(response.asMono()));
+
+    StepVerifier.create(Mono.zip(first, second))
+      .then(() -> response.tryEmitValue("product 1"))
+      .assertNext(results -> {
+        assertEquals("product 1", results.getT1());
+        assertEquals("product 1", results.getT2());
+      })
+      .verifyComplete();
+
+    assertEquals(1, calls.get());
+    assertEquals(0, singleFlight.size());
+  }
+
+  @Test
+  void callsForOtherIdsAreNotShared() {
+    Mono.zip(
+      singleFlight.execute(1, () -> call(Mono.just("product 1"))),
+      singleFlight.execute(2, () -> call(Mono.just("product 2")))).block();
+
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void callsForOtherLimitsAreNotShared() {
+    SingleFlight<List<Integer>, String> pages = new SingleFlight<>();
+
+    Mono.zip(
+      pages.execute(asList(1, 10), () -> call(Mono.just("page of 10"))),
+      pages.execute(asList(1, 100), () -> call(Mono.just("page of 100")))).block();
+
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void completedCallsAreNotReused() {
+    singleFlight.execute(1, () -> call(Mono.just("product 1"))).block();
+    singleFlight.execute(1, () -> call(Mono.just("product 1"))).block();
+
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void failuresAreSharedAndReleased() {
+    StepVerifier.create(singleFlight.execute(1, () -> call(Mono.error(new IllegalStateException("down")))))
+      .verifyErrorMessage("down");
+
+    assertEquals(0, singleFlight.size());
+  }
+
+  @Test
+  void callersOfAFinishedCallDoNotReleaseANewerCall() {
+    Sinks.One<String> response = Sinks.one();
+    Sinks.One<String> newer = Sinks.one();
+
+    // The callers are completed before the entry of the call is released, a lookup made meanwhile gets the same result
+    singleFlight.execute(1, () -> call(response.asMono())).subscribe();
+    singleFlight.execute(1, () -> call(response.asMono()))
+      .doOnNext(result -> singleFlight.execute(1, () -> call(newer.asMono())).subscribe())
+      .subscribe();
+    response.tryEmitValue("product 1");
+
+    // The signals of the finished call and its callers must not release the newer call while it is in flight
+    singleFlight.execute(1, () -> call(newer.asMono())).subscribe();
+    singleFlight.execute(1, () -> call(newer.asMono())).subscribe();
+
+    assertEquals(2, calls.get());
+    assertEquals(1, maximumInFlight.get());
+    assertEquals(1, singleFlight.size());
+  }
+
+  private Mono<String> call(Mono<String> response) {
+    return Mono.defer(() -> {
+        calls.incrementAndGet();
+        maximumInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        return response;
+      })
+      .doFinally(signal -> inFlight.decrementAndGet());
+  }
+}
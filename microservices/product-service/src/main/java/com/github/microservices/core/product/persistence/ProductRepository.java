@@ -1,8 +1,12 @@
 package com.github.microservices.core.product.persistence;
 
-import java.util.Optional;
-import org.springframework.data.repository.PagingAndSortingRepository;
+import java.util.Collection;
+import org.springframework.data.repository.reactive.ReactiveSortingRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-public interface ProductRepository extends PagingAndSortingRepository<ProductEntity, String> {
-  Optional<ProductEntity> findByProductId(int productId);
+public interface ProductRepository extends ReactiveSortingRepository<ProductEntity, String> {
+  Mono<ProductEntity> findByProductId(int productId);
+
+  Flux<ProductEntity> findByProductIdIn(Collection<Integer> productIds);
 }
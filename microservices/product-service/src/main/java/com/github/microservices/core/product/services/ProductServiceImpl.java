@@ -1,17 +1,24 @@
 package com.github.microservices.core.product.services;
 
+import java.util.List;
+
 import com.github.microservices.core.product.persistence.ProductRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import com.github.api.core.product.Product;
 import com.github.api.core.product.ProductService;
 import com.github.api.exceptions.InvalidInputException;
 import com.github.api.exceptions.NotFoundException;
 import com.github.microservices.core.product.persistence.ProductEntity;
+import com.github.util.http.EntityTagBuilder;
 import com.github.util.http.ServiceUtil;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @RestController
 public class ProductServiceImpl implements ProductService {
@@ -24,48 +31,74 @@ public class ProductServiceImpl implements ProductService {
 
   private final ProductMapper mapper;
 
+  private final int maximumProductIds;
+
   @Autowired
-  public ProductServiceImpl(ProductRepository repository, ProductMapper mapper, ServiceUtil serviceUtil) {
+  public ProductServiceImpl(
+    ProductRepository repository,
+    ProductMapper mapper,
+    ServiceUtil serviceUtil,
+    @Value("${app.maximum-product-ids}") int maximumProductIds) {
+
     this.repository = repository;
     this.mapper = mapper;
     this.serviceUtil = serviceUtil;
+    this.maximumProductIds = maximumProductIds;
   }
 
   @Override
-  public Product createProduct(Product body) {
-    try {
-      ProductEntity entity = mapper.apiToEntity(body);
-      ProductEntity newEntity = repository.save(entity);
-
-      LOG.debug("createProduct: entity created for productId: {}", body.getProductId());
-      return mapper.entityToApi(newEntity);
-
-    } catch (DuplicateKeyException dke) {
-      throw new InvalidInputException("Duplicate key, Product Id: " + body.getProductId());
-    }
+  public Mono<Product> createProduct(Product body) {
+    return repository.save(mapper.apiToEntity(body))
+      .onErrorMap(DuplicateKeyException.class, ex -> new InvalidInputException("Duplicate key, Product Id: " + body.getProductId()))
+      .doOnNext(e -> LOG.debug("createProduct: entity created for productId: {}", body.getProductId()))
+      .map(mapper::entityToApi);
   }
 
   @Override
-  public Product getProduct(int productId) {
+  public Mono<ResponseEntity<Product>> getProduct(int productId) {
 
     if (productId < 1) {
-      throw new InvalidInputException("Invalid productId: " + productId);
+      throw InvalidInputException.withoutStackTrace("Invalid productId: " + productId);
     }
 
-    ProductEntity entity = repository.findByProductId(productId)
-      .orElseThrow(() -> new NotFoundException("No product found for productId: " + productId));
+    return repository.findByProductId(productId)
+      .switchIfEmpty(Mono.error(() -> NotFoundException.withoutStackTrace("No product found for productId: " + productId)))
+      .map(entity -> {
+        Product response = mapper.entityToApi(entity);
+        response.setServiceAddress(serviceUtil.getServiceAddress());
 
-    Product response = mapper.entityToApi(entity);
-    response.setServiceAddress(serviceUtil.getServiceAddress());
+        LOG.debug("getProduct: found productId: {}", response.getProductId());
 
-    LOG.debug("getProduct: found productId: {}", response.getProductId());
+        // A request with a matching If-None-Match header is answered with 304 Not Modified, without writing the body
+        return ResponseEntity.ok()
+          .eTag(new EntityTagBuilder().add(entity.getId(), entity.getVersion()).build())
+          .body(response);
+      });
+  }
 
-    return response;
+  @Override
+  public Flux<Product> getProducts(List<Integer> productIds) {
+
+    if (productIds.isEmpty() || productIds.size() > maximumProductIds) {
+      throw InvalidInputException.withoutStackTrace("Invalid number of productIds: " + productIds.size() + ", expected 1 to " + maximumProductIds);
+    }
+    productIds.forEach(productId -> {
+      if (productId < 1) {
+        throw InvalidInputException.withoutStackTrace("Invalid productId: " + productId);
+      }
+    });
+
+    return repository.findByProductIdIn(productIds)
+      .map(e -> {
+        Product product = mapper.entityToApi(e);
+        product.setServiceAddress(serviceUtil.getServiceAddress());
+        return product;
+      });
   }
 
   @Override
-  public void deleteProduct(int productId) {
+  public Mono<Void> deleteProduct(int productId) {
     LOG.debug("deleteProduct: tries to delete an entity with productId: {}", productId);
-    repository.findByProductId(productId).ifPresent(e -> repository.delete(e));
+    return repository.findByProductId(productId).flatMap(repository::delete);
   }
 }
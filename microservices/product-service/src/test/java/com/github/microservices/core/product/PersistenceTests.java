@@ -1,11 +1,12 @@
 package com.github.microservices.core.product;
 
+import static java.util.Arrays.asList;
 import static java.util.stream.IntStream.rangeClosed;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.data.domain.Sort.Direction.ASC;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.Objects;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,11 +15,10 @@ import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoCo
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.OptimisticLockingFailureException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import com.github.microservices.core.product.persistence.ProductEntity;
 import com.github.microservices.core.product.persistence.ProductRepository;
+import reactor.test.StepVerifier;
 
 @DataMongoTest(excludeAutoConfiguration = EmbeddedMongoAutoConfiguration.class)
 class PersistenceTests extends MongoDbTestBase {
@@ -30,12 +30,15 @@ class PersistenceTests extends MongoDbTestBase {
 
   @BeforeEach
   void setupDb() {
-    repository.deleteAll();
+    StepVerifier.create(repository.deleteAll()).verifyComplete();
 
     ProductEntity entity = new ProductEntity(1, "n", 1);
-    savedEntity = repository.save(entity);
-
-    assertEqualsProduct(entity, savedEntity);
+    StepVerifier.create(repository.save(entity))
+      .expectNextMatches(createdEntity -> {
+        savedEntity = createdEntity;
+        return areProductEqual(entity, savedEntity);
+      })
+      .verifyComplete();
   }
 
 
@@ -43,98 +46,113 @@ class PersistenceTests extends MongoDbTestBase {
   void create() {
 
     ProductEntity newEntity = new ProductEntity(2, "n", 2);
-    repository.save(newEntity);
 
-    ProductEntity foundEntity = repository.findById(newEntity.getId()).get();
-    assertEqualsProduct(newEntity, foundEntity);
+    StepVerifier.create(repository.save(newEntity))
+      .expectNextMatches(createdEntity -> newEntity.getProductId() == createdEntity.getProductId())
+      .verifyComplete();
+
+    StepVerifier.create(repository.findById(newEntity.getId()))
+      .expectNextMatches(foundEntity -> areProductEqual(newEntity, foundEntity))
+      .verifyComplete();
 
-    assertEquals(2, repository.count());
+    StepVerifier.create(repository.count()).expectNext(2L).verifyComplete();
   }
 
   @Test
   void update() {
     savedEntity.setName("n2");
-    repository.save(savedEntity);
+    StepVerifier.create(repository.save(savedEntity))
+      .expectNextMatches(updatedEntity -> updatedEntity.getName().equals("n2"))
+      .verifyComplete();
 
-    ProductEntity foundEntity = repository.findById(savedEntity.getId()).get();
-    assertEquals(1, (long)foundEntity.getVersion());
-    assertEquals("n2", foundEntity.getName());
+    StepVerifier.create(repository.findById(savedEntity.getId()))
+      .expectNextMatches(foundEntity -> foundEntity.getVersion() == 1 && foundEntity.getName().equals("n2"))
+      .verifyComplete();
   }
 
   @Test
   void delete() {
-    repository.delete(savedEntity);
-    assertFalse(repository.existsById(savedEntity.getId()));
+    StepVerifier.create(repository.delete(savedEntity)).verifyComplete();
+    StepVerifier.create(repository.existsById(savedEntity.getId())).expectNext(false).verifyComplete();
   }
 
   @Test
   void getByProductId() {
-    Optional<ProductEntity> entity = repository.findByProductId(savedEntity.getProductId());
+    StepVerifier.create(repository.findByProductId(savedEntity.getProductId()))
+      .expectNextMatches(foundEntity -> areProductEqual(savedEntity, foundEntity))
+      .verifyComplete();
+  }
+
+  @Test
+  void getByProductIds() {
+    StepVerifier.create(repository.save(new ProductEntity(2, "n", 2))).expectNextCount(1).verifyComplete();
 
-    assertTrue(entity.isPresent());
-    assertEqualsProduct(savedEntity, entity.get());
+    StepVerifier.create(repository.findByProductIdIn(asList(savedEntity.getProductId(), 2, 3)))
+      .expectNextCount(2)
+      .verifyComplete();
   }
 
   @Test
   void duplicateError() {
-    assertThrows(DuplicateKeyException.class, () -> {
-      ProductEntity entity = new ProductEntity(savedEntity.getProductId(), "n", 1);
-      repository.save(entity);
-    });
+    ProductEntity entity = new ProductEntity(savedEntity.getProductId(), "n", 1);
+    StepVerifier.create(repository.save(entity)).expectError(DuplicateKeyException.class).verify();
   }
 
   @Test
   void optimisticLockError() {
 
     // Store the saved entity in two separate entity objects
-    ProductEntity entity1 = repository.findById(savedEntity.getId()).get();
-    ProductEntity entity2 = repository.findById(savedEntity.getId()).get();
+    ProductEntity entity1 = repository.findById(savedEntity.getId()).block();
+    ProductEntity entity2 = repository.findById(savedEntity.getId()).block();
 
     // Update the entity using the first entity object
     entity1.setName("n1");
-    repository.save(entity1);
+    repository.save(entity1).block();
 
     // Update the entity using the second entity object.
     // This should fail since the second entity now holds an old version number, i.e. an Optimistic Lock Error
-    assertThrows(OptimisticLockingFailureException.class, () -> {
-      entity2.setName("n2");
-      repository.save(entity2);
-    }); 
+    entity2.setName("n2");
+    StepVerifier.create(repository.save(entity2)).expectError(OptimisticLockingFailureException.class).verify();
 
     // Get the updated entity from the database and verify its new sate
-    ProductEntity updatedEntity = repository.findById(savedEntity.getId()).get();
-    assertEquals(1, (int)updatedEntity.getVersion());
-    assertEquals("n1", updatedEntity.getName());
+    StepVerifier.create(repository.findById(savedEntity.getId()))
+      .expectNextMatches(foundEntity -> foundEntity.getVersion() == 1 && foundEntity.getName().equals("n1"))
+      .verifyComplete();
   }
 
   @Test
   void paging() {
 
-    repository.deleteAll();
+    StepVerifier.create(repository.deleteAll()).verifyComplete();
 
     List<ProductEntity> newProducts = rangeClosed(1001, 1010)
       .mapToObj(i -> new ProductEntity(i, "name " + i, i))
       .collect(Collectors.toList());
-    repository.saveAll(newProducts);
+    StepVerifier.create(repository.saveAll(newProducts)).expectNextCount(10).verifyComplete();
 
-    Pageable nextPage = PageRequest.of(0, 4, ASC, "productId");
-    nextPage = testNextPage(nextPage, "[1001, 1002, 1003, 1004]", true);
-    nextPage = testNextPage(nextPage, "[1005, 1006, 1007, 1008]", true);
-    nextPage = testNextPage(nextPage, "[1009, 1010]", false);
+    testPage(0, 4, "[1001, 1002, 1003, 1004]", true);
+    testPage(1, 4, "[1005, 1006, 1007, 1008]", true);
+    testPage(2, 4, "[1009, 1010]", false);
   }
 
-  private Pageable testNextPage(Pageable nextPage, String expectedProductIds, boolean expectsNextPage) {
-    Page<ProductEntity> productPage = repository.findAll(nextPage);
-    assertEquals(expectedProductIds, productPage.getContent().stream().map(p -> p.getProductId()).collect(Collectors.toList()).toString());
-    assertEquals(expectsNextPage, productPage.hasNext());
-    return productPage.nextPageable();
+  private void testPage(int page, int size, String expectedProductIds, boolean expectsNextPage) {
+    // One more than the page size is read to tell if a next page follows
+    List<Integer> productIds = repository.findAll(Sort.by(ASC, "productId"))
+      .skip((long) page * size)
+      .take(size + 1)
+      .map(ProductEntity::getProductId)
+      .collectList()
+      .block();
+    assertEquals(expectedProductIds, productIds.subList(0, Math.min(size, productIds.size())).toString());
+    assertEquals(expectsNextPage, productIds.size() > size);
   }
 
-  private void assertEqualsProduct(ProductEntity expectedEntity, ProductEntity actualEntity) {
-    assertEquals(expectedEntity.getId(),               actualEntity.getId());
-    assertEquals(expectedEntity.getVersion(),          actualEntity.getVersion());
-    assertEquals(expectedEntity.getProductId(),        actualEntity.getProductId());
-    assertEquals(expectedEntity.getName(),           actualEntity.getName());
-    assertEquals(expectedEntity.getWeight(),           actualEntity.getWeight());
+  private boolean areProductEqual(ProductEntity expectedEntity, ProductEntity actualEntity) {
+    return
+      (expectedEntity.getId().equals(actualEntity.getId()))
+      && (Objects.equals(expectedEntity.getVersion(), actualEntity.getVersion()))
+      && (expectedEntity.getProductId() == actualEntity.getProductId())
+      && (expectedEntity.getName().equals(actualEntity.getName()))
+      && (expectedEntity.getWeight() == actualEntity.getWeight());
   }
 }
@@ -1,5 +1,6 @@
 package com.github.microservices.core.product;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
@@ -8,24 +9,30 @@ import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static reactor.core.publisher.Mono.just;
 
 import com.github.microservices.core.product.persistence.ProductRepository;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import com.github.api.core.product.Product;
+import com.github.util.http.HttpErrorInfo;
 
 @SpringBootTest(webEnvironment = RANDOM_PORT)
 class ProductServiceApplicationTests extends MongoDbTestBase {
 
+  private static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
   @Autowired private WebTestClient client;
 
   @Autowired private ProductRepository repository;
 
   @BeforeEach
   void setupDb() {
-    repository.deleteAll();
+    repository.deleteAll().block();
   }
 
   @Test
@@ -35,11 +42,118 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
 
     postAndVerifyProduct(productId, OK);
 
-    assertTrue(repository.findByProductId(productId).isPresent());
+    assertTrue(repository.findByProductId(productId).blockOptional().isPresent());
 
     getAndVerifyProduct(productId, OK).jsonPath("$.productId").isEqualTo(productId);
   }
 
+  @Test
+  void getProductNotModified() {
+
+    int productId = 1;
+
+    postAndVerifyProduct(productId, OK);
+
+    String eTag = client.get()
+      .uri("/product/" + productId)
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(OK)
+      .returnResult(Product.class)
+      .getResponseHeaders().getETag();
+
+    client.get()
+      .uri("/product/" + productId)
+      .ifNoneMatch(eTag)
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(NOT_MODIFIED)
+      .expectBody().isEmpty();
+  }
+
+  @Test
+  void getProductByIdAsSmile() {
+
+    int productId = 1;
+
+    client.post()
+      .uri("/product")
+      .contentType(APPLICATION_SMILE)
+      .body(just(new Product(productId, "Name " + productId, productId, "SA")), Product.class)
+      .accept(APPLICATION_SMILE)
+      .exchange()
+      .expectStatus().isEqualTo(OK)
+      .expectHeader().contentType(APPLICATION_SMILE);
+
+    Product product = client.get()
+      .uri("/product/" + productId)
+      .accept(APPLICATION_SMILE, APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(OK)
+      .expectHeader().contentType(APPLICATION_SMILE)
+      .expectBody(Product.class)
+      .returnResult().getResponseBody();
+
+    assertEquals(productId, product.getProductId());
+    assertEquals("Name " + productId, product.getName());
+  }
+
+  @Test
+  void getProductNotFoundAsSmile() {
+
+    int productIdNotFound = 13;
+
+    HttpErrorInfo error = client.get()
+      .uri("/product/" + productIdNotFound)
+      .accept(APPLICATION_SMILE, APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(NOT_FOUND)
+      .expectHeader().contentType(APPLICATION_SMILE)
+      .expectBody(HttpErrorInfo.class)
+      .returnResult().getResponseBody();
+
+    assertEquals("No product found for productId: " + productIdNotFound, error.getMessage());
+  }
+
+  @Test
+  void getProductDefaultsToJson() {
+
+    postAndVerifyProduct(1, OK);
+
+    client.get()
+      .uri("/product/1")
+      .exchange()
+      .expectStatus().isEqualTo(OK)
+      .expectHeader().contentType(APPLICATION_JSON);
+  }
+
+  @Test
+  void getProductsByIds() {
+
+    postAndVerifyProduct(1, OK);
+    postAndVerifyProduct(2, OK);
+    postAndVerifyProduct(3, OK);
+
+    client.get()
+      .uri("/product?productIds=1,3,13")
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(OK)
+      .expectHeader().contentType(APPLICATION_JSON)
+      .expectBody()
+      .jsonPath("$.length()").isEqualTo(2);
+  }
+
+  @Test
+  void getProductsTooManyIds() {
+
+    String productIds = IntStream.rangeClosed(1, 1001).mapToObj(String::valueOf).collect(Collectors.joining(","));
+
+    getAndVerifyProduct("?productIds=" + productIds, UNPROCESSABLE_ENTITY)
+      .jsonPath("$.path").isEqualTo("/product")
+      .jsonPath("$.message").isEqualTo("Invalid number of productIds: 1001, expected 1 to 1000");
+  }
+
   @Test
   void duplicateError() {
 
@@ -47,7 +161,7 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
 
     postAndVerifyProduct(productId, OK);
 
-    assertTrue(repository.findByProductId(productId).isPresent());
+    assertTrue(repository.findByProductId(productId).blockOptional().isPresent());
 
     postAndVerifyProduct(productId, UNPROCESSABLE_ENTITY)
       .jsonPath("$.path").isEqualTo("/product")
@@ -60,10 +174,10 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
     int productId = 1;
 
     postAndVerifyProduct(productId, OK);
-    assertTrue(repository.findByProductId(productId).isPresent());
+    assertTrue(repository.findByProductId(productId).blockOptional().isPresent());
 
     deleteAndVerifyProduct(productId, OK);
-    assertFalse(repository.findByProductId(productId).isPresent());
+    assertFalse(repository.findByProductId(productId).blockOptional().isPresent());
 
     deleteAndVerifyProduct(productId, OK);
   }
@@ -0,0 +1,15 @@
+package com.github.microservices.core.recommendation.persistence;
+
+import com.mongodb.bulk.BulkWriteError;
+import java.util.List;
+import reactor.core.publisher.Flux;
+
+public interface RecommendationBulkRepository {
+
+  /**
+   * Inserts the new entities in one unordered bulk write, an entity that cannot be inserted does not stop the others.
+   *
+   * @return the errors of the entities that were not inserted, with their index in the list, none if all were
+   */
+  Flux<BulkWriteError> insertUnordered(List<RecommendationEntity> entities);
+}
@@ -0,0 +1,52 @@
+package com.github.microservices.core.recommendation.persistence;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Writes the batch with insertMany of the driver, Spring Data inserts the entities of a list one by one and stops at
+ * the first that fails.
+ */
+public class RecommendationBulkRepositoryImpl implements RecommendationBulkRepository {
+
+  private final ReactiveMongoOperations mongoTemplate;
+
+  @Autowired
+  public RecommendationBulkRepositoryImpl(ReactiveMongoOperations mongoTemplate) {
+    this.mongoTemplate = mongoTemplate;
+  }
+
+  @Override
+  public Flux<BulkWriteError> insertUnordered(List<RecommendationEntity> entities) {
+    if (entities.isEmpty()) {
+      return Flux.empty();
+    }
+
+    MongoConverter converter = mongoTemplate.getConverter();
+    List<Document> documents = new ArrayList<>(entities.size());
+    for (RecommendationEntity entity : entities) {
+      // The version a save of the new entity would start it with
+      entity.setVersion(0);
+      Document document = new Document();
+      converter.write(entity, document);
+      documents.add(document);
+    }
+
+    return mongoTemplate.getCollection(mongoTemplate.getCollectionName(RecommendationEntity.class))
+      .flatMap(collection -> Mono.from(collection.insertMany(documents, new InsertManyOptions().ordered(false))))
+      .thenMany(Flux.<BulkWriteError>empty())
+      // A write concern error is not about single entities, it fails the whole batch
+      .onErrorResume(MongoBulkWriteException.class, ex -> ex.getWriteConcernError() != null
+        ? Flux.error(ex)
+        : Flux.fromIterable(ex.getWriteErrors()));
+  }
+}
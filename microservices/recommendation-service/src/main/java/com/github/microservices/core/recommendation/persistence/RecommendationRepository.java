@@ -1,8 +1,14 @@
 package com.github.microservices.core.recommendation.persistence;
 
-import java.util.List;
-import org.springframework.data.repository.CrudRepository;
+import java.util.Collection;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
 
-public interface RecommendationRepository extends CrudRepository<RecommendationEntity, String> {
-  List<RecommendationEntity> findByProductId(int productId);
+public interface RecommendationRepository extends ReactiveCrudRepository<RecommendationEntity, String>, RecommendationBulkRepository {
+  Flux<RecommendationEntity> findByProductId(int productId);
+
+  Flux<RecommendationEntity> findByProductIdAndRecommendationIdGreaterThan(int productId, int recommendationId, Pageable pageable);
+
+  Flux<RecommendationEntity> findByProductIdIn(Collection<Integer> productIds, Pageable pageable);
 }
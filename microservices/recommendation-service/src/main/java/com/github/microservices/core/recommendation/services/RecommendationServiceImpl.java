@@ -1,5 +1,8 @@
 package com.github.microservices.core.recommendation.services;
 
+import static java.util.stream.Collectors.toList;
+
+import com.mongodb.ErrorCategory;
 import java.util.List;
 
 import com.github.microservices.core.recommendation.persistence.RecommendationEntity;
@@ -7,12 +10,20 @@ import com.github.microservices.core.recommendation.persistence.RecommendationRe
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
+import com.github.api.core.BatchResult;
 import com.github.api.core.recommendation.Recommendation;
 import com.github.api.core.recommendation.RecommendationService;
 import com.github.api.exceptions.InvalidInputException;
+import com.github.util.http.EntityTagBuilder;
 import com.github.util.http.ServiceUtil;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @RestController
 public class RecommendationServiceImpl implements RecommendationService {
@@ -25,46 +36,117 @@ public class RecommendationServiceImpl implements RecommendationService {
 
   private final ServiceUtil serviceUtil;
 
+  private final int maximumPageSize;
+
+  private final int maximumBatchSize;
+
+  private final int maximumProductIds;
+
   @Autowired
-  public RecommendationServiceImpl(RecommendationRepository repository, RecommendationMapper mapper, ServiceUtil serviceUtil) {
+  public RecommendationServiceImpl(
+    RecommendationRepository repository,
+    RecommendationMapper mapper,
+    ServiceUtil serviceUtil,
+    @Value("${app.maximum-page-size}") int maximumPageSize,
+    @Value("${app.maximum-batch-size}") int maximumBatchSize,
+    @Value("${app.maximum-product-ids}") int maximumProductIds) {
+
     this.repository = repository;
     this.mapper = mapper;
     this.serviceUtil = serviceUtil;
+    this.maximumPageSize = maximumPageSize;
+    this.maximumBatchSize = maximumBatchSize;
+    this.maximumProductIds = maximumProductIds;
   }
 
   @Override
-  public Recommendation createRecommendation(Recommendation body) {
-    try {
-      RecommendationEntity entity = mapper.apiToEntity(body);
-      RecommendationEntity newEntity = repository.save(entity);
+  public Mono<Recommendation> createRecommendation(Recommendation body) {
+    return repository.save(mapper.apiToEntity(body))
+      .onErrorMap(DuplicateKeyException.class, ex -> new InvalidInputException(duplicateKey(body)))
+      .doOnNext(e -> LOG.debug("createRecommendation: created a recommendation entity: {}/{}", body.getProductId(), body.getRecommendationId()))
+      .map(mapper::entityToApi);
+  }
 
-      LOG.debug("createRecommendation: created a recommendation entity: {}/{}", body.getProductId(), body.getRecommendationId());
-      return mapper.entityToApi(newEntity);
+  @Override
+  public Mono<BatchResult> createRecommendations(List<Recommendation> body) {
 
-    } catch (DuplicateKeyException dke) {
-      throw new InvalidInputException("Duplicate key, Product Id: " + body.getProductId() + ", Recommendation Id:" + body.getRecommendationId());
+    if (body.size() > maximumBatchSize) {
+      throw InvalidInputException.withoutStackTrace("Invalid batch size: " + body.size() + ", expected at most " + maximumBatchSize);
     }
+
+    return repository.insertUnordered(body.stream().map(mapper::apiToEntity).collect(toList()))
+      .map(error -> new BatchResult.Failure(error.getIndex(), ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY
+        ? duplicateKey(body.get(error.getIndex()))
+        : error.getMessage()))
+      .collectList()
+      .map(failures -> new BatchResult(body.size() - failures.size(), failures))
+      .doOnNext(result -> LOG.debug("createRecommendations: created {} of {} recommendation entities", result.getCreated(), body.size()));
   }
 
   @Override
-  public List<Recommendation> getRecommendations(int productId) {
+  public Mono<ResponseEntity<List<Recommendation>>> getRecommendations(int productId, Integer limit, Integer after) {
 
     if (productId < 1) {
-      throw new InvalidInputException("Invalid productId: " + productId);
+      throw InvalidInputException.withoutStackTrace("Invalid productId: " + productId);
+    }
+
+    int pageSize = limit == null ? maximumPageSize : limit;
+    if (pageSize < 1 || pageSize > maximumPageSize) {
+      throw InvalidInputException.withoutStackTrace("Invalid limit: " + pageSize + ", expected 1 to " + maximumPageSize);
     }
-    
-    List<RecommendationEntity> entityList = repository.findByProductId(productId);
-    List<Recommendation> list = mapper.entityListToApiList(entityList);
-    list.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
 
-    LOG.debug("getRecommendations: response size: {}", list.size());
+    // A range scan of the unique (productId, recommendationId) index, as cheap for the last page as for the first
+    return repository.findByProductIdAndRecommendationIdGreaterThan(
+        productId, after == null ? Integer.MIN_VALUE : after, PageRequest.of(0, pageSize, Sort.by("recommendationId")))
+      .collectList()
+      .map(entityList -> {
+        List<Recommendation> list = mapper.entityListToApiList(entityList);
+        list.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
+
+        LOG.debug("getRecommendations: response size: {}", list.size());
 
-    return list;
+        EntityTagBuilder tag = new EntityTagBuilder();
+        entityList.forEach(e -> tag.add(e.getId(), e.getVersion()));
+        return ResponseEntity.ok().eTag(tag.build()).body(list);
+      });
   }
 
   @Override
-  public void deleteRecommendations(int productId) {
+  public Flux<Recommendation> getRecommendations(List<Integer> productIds) {
+
+    if (productIds.isEmpty() || productIds.size() > maximumProductIds) {
+      throw InvalidInputException.withoutStackTrace("Invalid number of productIds: " + productIds.size() + ", expected 1 to " + maximumProductIds);
+    }
+    productIds.forEach(productId -> {
+      if (productId < 1) {
+        throw InvalidInputException.withoutStackTrace("Invalid productId: " + productId);
+      }
+    });
+
+    // One more than the maximum page size is read to tell whether the products have too many recommendations
+    return repository.findByProductIdIn(productIds, PageRequest.of(0, maximumPageSize + 1, Sort.by("productId", "recommendationId")))
+      .index()
+      .map(indexed -> {
+        if (indexed.getT1() == maximumPageSize) {
+          throw InvalidInputException.withoutStackTrace("Invalid productIds: more than " + maximumPageSize
+            + " recommendations, expected at most " + maximumPageSize + ", ask for fewer productIds");
+        }
+        return indexed.getT2();
+      })
+      .map(e -> {
+        Recommendation recommendation = mapper.entityToApi(e);
+        recommendation.setServiceAddress(serviceUtil.getServiceAddress());
+        return recommendation;
+      });
+  }
+
+  @Override
+  public Mono<Void> deleteRecommendations(int productId) {
     LOG.debug("deleteRecommendations: tries to delete recommendations for the product with productId: {}", productId);
-    repository.deleteAll(repository.findByProductId(productId));
+    return repository.deleteAll(repository.findByProductId(productId));
+  }
+
+  private static String duplicateKey(Recommendation recommendation) {
+    return "Duplicate key, Product Id: " + recommendation.getProductId() + ", Recommendation Id:" + recommendation.getRecommendationId();
   }
 }
@@ -1,10 +1,8 @@
 package com.github.microservices.core.recommendation;
 
-import static org.hamcrest.MatcherAssert.assertThat;
-import static org.hamcrest.Matchers.hasSize;
-import static org.junit.jupiter.api.Assertions.*;
+import static java.util.Arrays.asList;
 
-import java.util.List;
+import java.util.Objects;
 
 import com.github.microservices.core.recommendation.persistence.RecommendationEntity;
 import com.github.microservices.core.recommendation.persistence.RecommendationRepository;
@@ -15,6 +13,10 @@ import org.springframework.boot.autoconfigure.mongo.embedded.EmbeddedMongoAutoCo
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import reactor.test.StepVerifier;
 
 @DataMongoTest(excludeAutoConfiguration = EmbeddedMongoAutoConfiguration.class)
 class PersistenceTests extends MongoDbTestBase {
@@ -26,12 +28,15 @@ class PersistenceTests extends MongoDbTestBase {
 
   @BeforeEach
   void setupDb() {
-    repository.deleteAll();
+    StepVerifier.create(repository.deleteAll()).verifyComplete();
 
     RecommendationEntity entity = new RecommendationEntity(1, 2, "a", 3, "c");
-    savedEntity = repository.save(entity);
-
-    assertEqualsRecommendation(entity, savedEntity);
+    StepVerifier.create(repository.save(entity))
+      .expectNextMatches(createdEntity -> {
+        savedEntity = createdEntity;
+        return areRecommendationEqual(entity, savedEntity);
+      })
+      .verifyComplete();
   }
 
 
@@ -39,77 +44,92 @@ class PersistenceTests extends MongoDbTestBase {
   void create() {
 
     RecommendationEntity newEntity = new RecommendationEntity(1, 3, "a", 3, "c");
-    repository.save(newEntity);
 
-    RecommendationEntity foundEntity = repository.findById(newEntity.getId()).get();
-    assertEqualsRecommendation(newEntity, foundEntity);
+    StepVerifier.create(repository.save(newEntity))
+      .expectNextMatches(createdEntity -> newEntity.getRecommendationId() == createdEntity.getRecommendationId())
+      .verifyComplete();
+
+    StepVerifier.create(repository.findById(newEntity.getId()))
+      .expectNextMatches(foundEntity -> areRecommendationEqual(newEntity, foundEntity))
+      .verifyComplete();
 
-    assertEquals(2, repository.count());
+    StepVerifier.create(repository.count()).expectNext(2L).verifyComplete();
   }
 
   @Test
   void update() {
     savedEntity.setAuthor("a2");
-    repository.save(savedEntity);
+    StepVerifier.create(repository.save(savedEntity))
+      .expectNextMatches(updatedEntity -> updatedEntity.getAuthor().equals("a2"))
+      .verifyComplete();
 
-    RecommendationEntity foundEntity = repository.findById(savedEntity.getId()).get();
-    assertEquals(1, (long)foundEntity.getVersion());
-    assertEquals("a2", foundEntity.getAuthor());
+    StepVerifier.create(repository.findById(savedEntity.getId()))
+      .expectNextMatches(foundEntity -> foundEntity.getVersion() == 1 && foundEntity.getAuthor().equals("a2"))
+      .verifyComplete();
   }
 
   @Test
   void delete() {
-    repository.delete(savedEntity);
-    assertFalse(repository.existsById(savedEntity.getId()));
+    StepVerifier.create(repository.delete(savedEntity)).verifyComplete();
+    StepVerifier.create(repository.existsById(savedEntity.getId())).expectNext(false).verifyComplete();
   }
 
   @Test
   void getByProductId() {
-    List<RecommendationEntity> entityList = repository.findByProductId(savedEntity.getProductId());
+    StepVerifier.create(repository.findByProductId(savedEntity.getProductId()))
+      .expectNextMatches(foundEntity -> areRecommendationEqual(savedEntity, foundEntity))
+      .verifyComplete();
+  }
 
-    assertThat(entityList, hasSize(1));
-    assertEqualsRecommendation(savedEntity, entityList.get(0));
+  @Test
+  void getByProductIds() {
+    StepVerifier.create(repository.save(new RecommendationEntity(2, 1, "a", 3, "c"))).expectNextCount(1).verifyComplete();
+
+    StepVerifier.create(repository.findByProductIdIn(asList(savedEntity.getProductId(), 2, 3), Pageable.unpaged()))
+      .expectNextCount(2)
+      .verifyComplete();
+
+    StepVerifier.create(repository.findByProductIdIn(asList(2, 1), PageRequest.of(0, 1, Sort.by("productId", "recommendationId"))))
+      .expectNextMatches(foundEntity -> areRecommendationEqual(savedEntity, foundEntity))
+      .verifyComplete();
   }
 
   @Test
   void duplicateError() {
-    assertThrows(DuplicateKeyException.class, () -> {
-      RecommendationEntity entity = new RecommendationEntity(1, 2, "a", 3, "c");
-      repository.save(entity);
-    });
+    RecommendationEntity entity = new RecommendationEntity(1, 2, "a", 3, "c");
+    StepVerifier.create(repository.save(entity)).expectError(DuplicateKeyException.class).verify();
   }
 
   @Test
   void optimisticLockError() {
 
     // Store the saved entity in two separate entity objects
-    RecommendationEntity entity1 = repository.findById(savedEntity.getId()).get();
-    RecommendationEntity entity2 = repository.findById(savedEntity.getId()).get();
+    RecommendationEntity entity1 = repository.findById(savedEntity.getId()).block();
+    RecommendationEntity entity2 = repository.findById(savedEntity.getId()).block();
 
     // Update the entity using the first entity object
     entity1.setAuthor("a1");
-    repository.save(entity1);
+    repository.save(entity1).block();
 
     //  Update the entity using the second entity object.
     // This should fail since the second entity now holds an old version number, i.e. an Optimistic Lock Error
-    assertThrows(OptimisticLockingFailureException.class, () -> {
-      entity2.setAuthor("a2");
-      repository.save(entity2);
-    });
+    entity2.setAuthor("a2");
+    StepVerifier.create(repository.save(entity2)).expectError(OptimisticLockingFailureException.class).verify();
 
     // Get the updated entity from the database and verify its new sate
-    RecommendationEntity updatedEntity = repository.findById(savedEntity.getId()).get();
-    assertEquals(1, (int)updatedEntity.getVersion());
-    assertEquals("a1", updatedEntity.getAuthor());
+    StepVerifier.create(repository.findById(savedEntity.getId()))
+      .expectNextMatches(foundEntity -> foundEntity.getVersion() == 1 && foundEntity.getAuthor().equals("a1"))
+      .verifyComplete();
   }
 
-  private void assertEqualsRecommendation(RecommendationEntity expectedEntity, RecommendationEntity actualEntity) {
-    assertEquals(expectedEntity.getId(),               actualEntity.getId());
-    assertEquals(expectedEntity.getVersion(),          actualEntity.getVersion());
-    assertEquals(expectedEntity.getProductId(),        actualEntity.getProductId());
-    assertEquals(expectedEntity.getRecommendationId(), actualEntity.getRecommendationId());
-    assertEquals(expectedEntity.getAuthor(),           actualEntity.getAuthor());
-    assertEquals(expectedEntity.getRating(),           actualEntity.getRating());
-    assertEquals(expectedEntity.getContent(),          actualEntity.getContent());
+  private boolean areRecommendationEqual(RecommendationEntity expectedEntity, RecommendationEntity actualEntity) {
+    return
+      (expectedEntity.getId().equals(actualEntity.getId()))
+      && (Objects.equals(expectedEntity.getVersion(), actualEntity.getVersion()))
+      && (expectedEntity.getProductId() == actualEntity.getProductId())
+      && (expectedEntity.getRecommendationId() == actualEntity.getRecommendationId())
+      && (expectedEntity.getAuthor().equals(actualEntity.getAuthor()))
+      && (expectedEntity.getRating() == actualEntity.getRating())
+      && (expectedEntity.getContent().equals(actualEntity.getContent()));
   }
 }
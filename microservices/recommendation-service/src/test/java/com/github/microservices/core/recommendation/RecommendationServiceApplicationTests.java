@@ -6,6 +6,9 @@ import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static reactor.core.publisher.Mono.just;
 
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,7 +29,7 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
 
   @BeforeEach
   void setupDb() {
-    repository.deleteAll();
+    repository.deleteAll().block();
   }
   
   @Test
@@ -38,7 +41,7 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
     postAndVerifyRecommendation(productId, 2, OK);
     postAndVerifyRecommendation(productId, 3, OK);
 
-    assertEquals(3, repository.findByProductId(productId).size());
+    assertEquals(3, (long) repository.findByProductId(productId).count().block());
 
     getAndVerifyRecommendationsByProductId(productId, OK)
       .jsonPath("$.length()").isEqualTo(3)
@@ -46,6 +49,89 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
       .jsonPath("$[2].recommendationId").isEqualTo(3);
   }
 
+  @Test
+  void getRecommendationsByProductIds() {
+
+    postAndVerifyRecommendation(1, 1, OK);
+    postAndVerifyRecommendation(1, 2, OK);
+    postAndVerifyRecommendation(2, 1, OK);
+    postAndVerifyRecommendation(3, 1, OK);
+
+    getAndVerifyRecommendationsByProductId("?productIds=1,2", OK)
+      .jsonPath("$.length()").isEqualTo(3);
+  }
+
+  @Test
+  void getRecommendationsTooManyProductIds() {
+
+    String productIds = IntStream.rangeClosed(1, 1001).mapToObj(String::valueOf).collect(Collectors.joining(","));
+
+    getAndVerifyRecommendationsByProductId("?productIds=" + productIds, UNPROCESSABLE_ENTITY)
+      .jsonPath("$.path").isEqualTo("/recommendation")
+      .jsonPath("$.message").isEqualTo("Invalid number of productIds: 1001, expected 1 to 1000");
+  }
+
+  @Test
+  void getRecommendationsPageByPage() {
+
+    int productId = 1;
+
+    postAndVerifyRecommendation(productId, 3, OK);
+    postAndVerifyRecommendation(productId, 1, OK);
+    postAndVerifyRecommendation(productId, 2, OK);
+
+    getAndVerifyRecommendationsByProductId("?productId=" + productId + "&limit=2", OK)
+      .jsonPath("$.length()").isEqualTo(2)
+      .jsonPath("$[0].recommendationId").isEqualTo(1)
+      .jsonPath("$[1].recommendationId").isEqualTo(2);
+
+    getAndVerifyRecommendationsByProductId("?productId=" + productId + "&limit=2&after=2", OK)
+      .jsonPath("$.length()").isEqualTo(1)
+      .jsonPath("$[0].recommendationId").isEqualTo(3);
+  }
+
+  @Test
+  void getRecommendationsNotModifiedUntilChanged() {
+
+    int productId = 1;
+
+    postAndVerifyRecommendation(productId, 1, OK);
+
+    String eTag = client.get()
+      .uri("/recommendation?productId=" + productId)
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(OK)
+      .returnResult(Recommendation.class)
+      .getResponseHeaders().getETag();
+
+    client.get()
+      .uri("/recommendation?productId=" + productId)
+      .ifNoneMatch(eTag)
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(NOT_MODIFIED);
+
+    postAndVerifyRecommendation(productId, 2, OK);
+
+    client.get()
+      .uri("/recommendation?productId=" + productId)
+      .ifNoneMatch(eTag)
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(OK)
+      .expectBody()
+      .jsonPath("$.length()").isEqualTo(2);
+  }
+
+  @Test
+  void getRecommendationsInvalidLimit() {
+
+    getAndVerifyRecommendationsByProductId("?productId=1&limit=1001", UNPROCESSABLE_ENTITY)
+      .jsonPath("$.path").isEqualTo("/recommendation")
+      .jsonPath("$.message").isEqualTo("Invalid limit: 1001, expected 1 to 1000");
+  }
+
   @Test
   void duplicateError() {
 
@@ -56,13 +142,47 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
       .jsonPath("$.productId").isEqualTo(productId)
       .jsonPath("$.recommendationId").isEqualTo(recommendationId);
 
-    assertEquals(1, repository.count());
+    assertEquals(1, (long) repository.count().block());
 
     postAndVerifyRecommendation(productId, recommendationId, UNPROCESSABLE_ENTITY)
       .jsonPath("$.path").isEqualTo("/recommendation")
       .jsonPath("$.message").isEqualTo("Duplicate key, Product Id: 1, Recommendation Id:1");
 
-    assertEquals(1, repository.count());
+    assertEquals(1, (long) repository.count().block());
+  }
+
+  @Test
+  void createRecommendationsInBatch() {
+
+    int productId = 1;
+
+    postAndVerifyRecommendation(productId, 2, OK);
+
+    List<Recommendation> batch = IntStream.rangeClosed(1, 3)
+      .mapToObj(recommendationId -> recommendation(productId, recommendationId))
+      .collect(Collectors.toList());
+
+    postAndVerifyRecommendations(batch, OK)
+      .jsonPath("$.created").isEqualTo(2)
+      .jsonPath("$.failures.length()").isEqualTo(1)
+      .jsonPath("$.failures[0].index").isEqualTo(1)
+      .jsonPath("$.failures[0].message").isEqualTo("Duplicate key, Product Id: 1, Recommendation Id:2");
+
+    assertEquals(3, (long) repository.findByProductId(productId).count().block());
+  }
+
+  @Test
+  void createRecommendationsInvalidBatchSize() {
+
+    List<Recommendation> batch = IntStream.rangeClosed(1, 1001)
+      .mapToObj(recommendationId -> recommendation(1, recommendationId))
+      .collect(Collectors.toList());
+
+    postAndVerifyRecommendations(batch, UNPROCESSABLE_ENTITY)
+      .jsonPath("$.path").isEqualTo("/recommendation/batch")
+      .jsonPath("$.message").isEqualTo("Invalid batch size: 1001, expected at most 1000");
+
+    assertEquals(0, (long) repository.count().block());
   }
 
   @Test
@@ -72,10 +192,10 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
     int recommendationId = 1;
 
     postAndVerifyRecommendation(productId, recommendationId, OK);
-    assertEquals(1, repository.findByProductId(productId).size());
+    assertEquals(1, (long) repository.findByProductId(productId).count().block());
 
     deleteAndVerifyRecommendationsByProductId(productId, OK);
-    assertEquals(0, repository.findByProductId(productId).size());
+    assertEquals(0, (long) repository.findByProductId(productId).count().block());
 
     deleteAndVerifyRecommendationsByProductId(productId, OK);
   }
@@ -128,10 +248,20 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
   }
 
   private WebTestClient.BodyContentSpec postAndVerifyRecommendation(int productId, int recommendationId, HttpStatus expectedStatus) {
-    Recommendation recommendation = new Recommendation(productId, recommendationId, "Author " + recommendationId, recommendationId, "Content " + recommendationId, "SA");
     return client.post()
       .uri("/recommendation")
-      .body(just(recommendation), Recommendation.class)
+      .body(just(recommendation(productId, recommendationId)), Recommendation.class)
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(expectedStatus)
+      .expectHeader().contentType(APPLICATION_JSON)
+      .expectBody();
+  }
+
+  private WebTestClient.BodyContentSpec postAndVerifyRecommendations(List<Recommendation> recommendations, HttpStatus expectedStatus) {
+    return client.post()
+      .uri("/recommendation/batch")
+      .bodyValue(recommendations)
       .accept(APPLICATION_JSON)
       .exchange()
       .expectStatus().isEqualTo(expectedStatus)
@@ -139,6 +269,10 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
       .expectBody();
   }
 
+  private Recommendation recommendation(int productId, int recommendationId) {
+    return new Recommendation(productId, recommendationId, "Author " + recommendationId, recommendationId, "Content " + recommendationId, "SA");
+  }
+
   private WebTestClient.BodyContentSpec deleteAndVerifyRecommendationsByProductId(int productId, HttpStatus expectedStatus) {
     return client.delete()
       .uri("/recommendation?productId=" + productId)
@@ -0,0 +1,139 @@
+package com.github.microservices.core.review.persistence;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Many concurrent requests for reviews, each making a blocking repository call that holds one of the connections of
+ * the pool for a millisecond, a stand-in for a query answered by MySQL.
+ *
+ * In the event-loop mode the calls are made on the event loop, as before JpaReviewStore. In the bounded-elastic mode
+ * they run on as many threads as there are connections, in the virtual-threads mode on a virtual thread each.
+ * concurrentCalls is the time to answer all requests, unrelatedTask the time the event loop takes to run a task of
+ * another request while they are answered. Run with "./gradlew jmh", on JDK 21 or later for the virtual-threads mode.
+ *
+ * The stand-in waits without pinning the carrier thread of a virtual thread, unlike the MySQL driver that waits in
+ * synchronized blocks, the virtual-threads mode does better here than with MySQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BlockingCallBenchmark {
+
+  @Param({"event-loop", "bounded-elastic", "virtual-threads"})
+  private String mode;
+
+  @Param({"1000"})
+  private int concurrency;
+
+  @Param({"10", "50"})
+  private int connections;
+
+  private Scheduler eventLoop;
+  private ReviewRepository repository;
+  private JpaReviewStore store;
+
+  @Setup
+  public void setUp() {
+    eventLoop = Schedulers.newParallel("event-loop", Runtime.getRuntime().availableProcessors());
+    repository = repository(new Semaphore(connections));
+    if (!mode.equals("event-loop")) {
+      store = new JpaReviewStore(repository, TransactionOperations.withoutTransaction(), mode, connections, Integer.MAX_VALUE);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (store != null) {
+      store.stop();
+    }
+    eventLoop.dispose();
+  }
+
+  @Benchmark
+  public List<ReviewEntity> concurrentCalls() {
+    return calls().blockLast();
+  }
+
+  @Benchmark
+  public Integer unrelatedTask(InFlight inFlight) {
+    return Mono.fromCallable(() -> 1).subscribeOn(eventLoop).block();
+  }
+
+  /**
+   * The calls answering the requests, in flight while the unrelated task runs.
+   */
+  @State(Scope.Thread)
+  public static class InFlight {
+
+    private CompletableFuture<List<ReviewEntity>> calls;
+
+    @Setup(Level.Invocation)
+    public void start(BlockingCallBenchmark benchmark) {
+      calls = benchmark.calls().last().toFuture();
+    }
+
+    @TearDown(Level.Invocation)
+    public void await() {
+      calls.join();
+    }
+  }
+
+  private Flux<List<ReviewEntity>> calls() {
+    return Flux.range(1, concurrency)
+      .flatMap(productId -> Mono.defer(() -> call(productId)).subscribeOn(eventLoop), concurrency);
+  }
+
+  private Mono<List<ReviewEntity>> call(int productId) {
+    if (store == null) {
+      return Mono.just(repository.findByProductIdAndReviewIdGreaterThan(productId, 0, null));
+    }
+    return store.findPage(productId, 0, 10).collectList();
+  }
+
+  /**
+   * A repository whose queries wait for a connection and hold it for a millisecond.
+   */
+  private static ReviewRepository repository(Semaphore connections) {
+    return (ReviewRepository) Proxy.newProxyInstance(
+      ReviewRepository.class.getClassLoader(),
+      new Class<?>[] {ReviewRepository.class},
+      (proxy, method, args) -> {
+        if (!method.getName().equals("findByProductIdAndReviewIdGreaterThan")) {
+          throw new UnsupportedOperationException(method.getName());
+        }
+        connections.acquire();
+        try {
+          Thread.sleep(1);
+        } finally {
+          connections.release();
+        }
+        return Collections.emptyList();
+      });
+  }
+}
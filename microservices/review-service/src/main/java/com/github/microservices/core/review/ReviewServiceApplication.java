@@ -6,6 +6,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.core.env.Profiles;
 
 @SpringBootApplication
 @ComponentScan("com.github")
@@ -16,7 +17,8 @@ public class ReviewServiceApplication {
   public static void main(String[] args) {
     ConfigurableApplicationContext ctx = SpringApplication.run(ReviewServiceApplication.class, args);
 
-    String mysqlUri = ctx.getEnvironment().getProperty("spring.datasource.url");
+    boolean r2dbc = ctx.getEnvironment().acceptsProfiles(Profiles.of("r2dbc"));
+    String mysqlUri = ctx.getEnvironment().getProperty(r2dbc ? "spring.r2dbc.url" : "spring.datasource.url");
     LOG.info("Connected to MySQL: " + mysqlUri);
   }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.github.microservices.core.review.persistence;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+/**
+ * Runs the blocking JPA repository off the event loop, so the event loop is never blocked.
+ *
+ * With the bounded-elastic scheduler the calls run on a bounded pool of threads, sized as the connection pool, a call
+ * made while all threads are busy and the task queue is full fails. With the virtual-threads scheduler each call runs
+ * on a virtual thread of its own, a call waiting for a connection holds no platform thread. A call waiting for MySQL
+ * still pins its carrier thread, as the MySQL driver waits in synchronized blocks.
+ *
+ * A batch of reviews is inserted with one JDBC batch, sent as a single multi-row insert with the rewriteBatchedStatements
+ * option of the MySQL driver, after one query for the reviews of the batch that already exist.
+ */
+@Component
+@Profile("!r2dbc")
+public class JpaReviewStore implements ReviewStore {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JpaReviewStore.class);
+
+  private final ReviewRepository repository;
+  private final TransactionOperations transactions;
+  private final Scheduler jdbcScheduler;
+
+  @Autowired
+  public JpaReviewStore(
+    ReviewRepository repository,
+    TransactionOperations transactions,
+    @Value("${app.jdbc.scheduler}") String scheduler,
+    @Value("${app.jdbc.thread-pool-size}") int threadPoolSize,
+    @Value("${app.jdbc.task-queue-size}") int taskQueueSize) {
+
+    this.repository = repository;
+    this.transactions = transactions;
+
+    switch (scheduler) {
+      case "bounded-elastic":
+        this.jdbcScheduler = Schedulers.newBoundedElastic(threadPoolSize, taskQueueSize, "jdbc-pool");
+        LOG.info("Runs JPA calls on {} threads, task queue size: {}", threadPoolSize, taskQueueSize);
+        break;
+
+      case "virtual-threads":
+        this.jdbcScheduler = Schedulers.fromExecutorService(newVirtualThreadPerTaskExecutor(), "jdbc-virtual");
+        LOG.info("Runs JPA calls on virtual threads");
+        break;
+
+      default:
+        throw new IllegalArgumentException("Invalid app.jdbc.scheduler: " + scheduler + ", expected bounded-elastic or virtual-threads");
+    }
+  }
+
+  @Override
+  public Mono<ReviewEntity> create(ReviewEntity entity) {
+    return call(() -> repository.save(entity));
+  }
+
+  @Override
+  public Flux<Integer> createAll(List<ReviewEntity> entities) {
+    if (entities.isEmpty()) {
+      return Flux.empty();
+    }
+    return call(() -> transactions.execute(status -> {
+        ReviewBatch batch = new ReviewBatch(entities, repository.findByProductIdInAndReviewIdIn(
+          ReviewBatch.productIds(entities), ReviewBatch.reviewIds(entities)));
+
+        // The ids allocated by an attempt that was rolled back are not reused, the reviews are new again
+        batch.getCreated().forEach(entity -> entity.setId(0));
+        repository.saveAll(batch.getCreated());
+        return batch.getDuplicates();
+      }))
+      // A review created concurrently, after the lookup, fails the whole batch, the lookup finds it the second time
+      .retryWhen(Retry.max(1).filter(DataIntegrityViolationException.class::isInstance)
+        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+      .flatMapIterable(list -> list);
+  }
+
+  @Override
+  public Flux<ReviewEntity> findPage(int productId, int after, int pageSize) {
+    return call(() -> repository.findByProductIdAndReviewIdGreaterThan(productId, after, PageRequest.of(0, pageSize, Sort.by("reviewId"))))
+      .flatMapIterable(list -> list);
+  }
+
+  @Override
+  public Flux<ReviewEntity> findByProductIdIn(Collection<Integer> productIds, int limit) {
+    return call(() -> repository.findByProductIdIn(productIds, PageRequest.of(0, limit, Sort.by("productId", "reviewId"))))
+      .flatMapIterable(list -> list);
+  }
+
+  @Override
+  public Mono<Void> deleteByProductId(int productId) {
+    return call(() -> {
+      repository.deleteAll(repository.findByProductId(productId));
+      return productId;
+    }).then();
+  }
+
+  @PreDestroy
+  void stop() {
+    jdbcScheduler.dispose();
+  }
+
+  /**
+   * The service is built for Java 8, virtual threads are only available when it runs on Java 21 or later.
+   */
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException ex) {
+      throw new IllegalStateException("Invalid app.jdbc.scheduler: virtual-threads, expected Java 21 or later, running on Java "
+        + System.getProperty("java.version"));
+    } catch (ReflectiveOperationException ex) {
+      throw new IllegalStateException("Failed to create a virtual thread per task executor", ex);
+    }
+  }
+
+  private <T> Mono<T> call(Callable<T> call) {
+    return Mono.fromCallable(call).subscribeOn(jdbcScheduler);
+  }
+}
@@ -0,0 +1,215 @@
+package com.github.microservices.core.review.persistence;
+
+import io.r2dbc.spi.Row;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Reads and writes the reviews table with R2DBC, no thread is blocked while a statement runs.
+ *
+ * The table is the one JPA maps, so the two can be used with the same database. Ids are allocated from the
+ * hibernate_sequence table as JPA allocates them, a block of ReviewEntity.ID_ALLOCATION_SIZE ids at a time, in a
+ * transaction of their own so concurrent inserts only hold the sequence row while it is updated. The unique
+ * reviews_unique_idx index rejects a duplicate review. A batch of reviews is inserted with one multi-row insert.
+ */
+@Component
+@Profile("r2dbc")
+public class R2dbcReviewStore implements ReviewStore {
+
+  private static final String COLUMNS = "id, version, product_id, review_id, author, subject, content";
+
+  private final DatabaseClient client;
+  private final TransactionalOperator transactional;
+  private final TransactionalOperator idTransactional;
+
+  // The ids of the block allocated last that are not used yet, from nextId to idLimit
+  private long nextId;
+  private long idLimit;
+
+  @Autowired
+  public R2dbcReviewStore(DatabaseClient client, ReactiveTransactionManager transactionManager) {
+    this.client = client;
+    this.transactional = TransactionalOperator.create(transactionManager);
+    // A block of ids stays allocated when the inserts it was allocated for are rolled back
+    this.idTransactional = TransactionalOperator.create(transactionManager,
+      new DefaultTransactionDefinition(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+  }
+
+  @Override
+  public Mono<ReviewEntity> create(ReviewEntity entity) {
+    return nextIds(1).map(ids -> ids.get(0)).flatMap(id -> {
+      GenericExecuteSpec insert = client.sql("INSERT INTO reviews (" + COLUMNS + ") "
+          + "VALUES (:id, 0, :productId, :reviewId, :author, :subject, :content)")
+        .bind("id", id)
+        .bind("productId", entity.getProductId())
+        .bind("reviewId", entity.getReviewId());
+      insert = bindNullable(insert, "author", entity.getAuthor());
+      insert = bindNullable(insert, "subject", entity.getSubject());
+      insert = bindNullable(insert, "content", entity.getContent());
+
+      return insert.fetch().rowsUpdated().map(rows -> {
+        entity.setId(id);
+        entity.setVersion(0);
+        return entity;
+      });
+    });
+  }
+
+  @Override
+  public Flux<Integer> createAll(List<ReviewEntity> entities) {
+    if (entities.isEmpty()) {
+      return Flux.empty();
+    }
+    return client.sql("SELECT " + COLUMNS + " FROM reviews WHERE product_id IN (:productIds) AND review_id IN (:reviewIds)")
+      .bind("productIds", ReviewBatch.productIds(entities))
+      .bind("reviewIds", ReviewBatch.reviewIds(entities))
+      .map((row, metadata) -> toEntity(row))
+      .all()
+      .collectList()
+      .map(existing -> new ReviewBatch(entities, existing))
+      .flatMap(batch -> insert(batch.getCreated()).thenReturn(batch.getDuplicates()))
+      .as(transactional::transactional)
+      // A review created concurrently, after the lookup, fails the whole batch, the lookup finds it the second time
+      .retryWhen(Retry.max(1).filter(DataIntegrityViolationException.class::isInstance)
+        .onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+      .flatMapIterable(list -> list);
+  }
+
+  @Override
+  public Flux<ReviewEntity> findPage(int productId, int after, int pageSize) {
+    return client.sql("SELECT " + COLUMNS + " FROM reviews WHERE product_id = :productId AND review_id > :after "
+        + "ORDER BY review_id LIMIT :pageSize")
+      .bind("productId", productId)
+      .bind("after", after)
+      .bind("pageSize", pageSize)
+      .map((row, metadata) -> toEntity(row))
+      .all();
+  }
+
+  @Override
+  public Flux<ReviewEntity> findByProductIdIn(Collection<Integer> productIds, int limit) {
+    if (productIds.isEmpty()) {
+      return Flux.empty();
+    }
+    return client.sql("SELECT " + COLUMNS + " FROM reviews WHERE product_id IN (:productIds) "
+        + "ORDER BY product_id, review_id LIMIT :limit")
+      .bind("productIds", productIds)
+      .bind("limit", limit)
+      .map((row, metadata) -> toEntity(row))
+      .all();
+  }
+
+  @Override
+  public Mono<Void> deleteByProductId(int productId) {
+    return client.sql("DELETE FROM reviews WHERE product_id = :productId")
+      .bind("productId", productId)
+      .fetch().rowsUpdated()
+      .then();
+  }
+
+  private Mono<Void> insert(List<ReviewEntity> entities) {
+    if (entities.isEmpty()) {
+      return Mono.empty();
+    }
+    return nextIds(entities.size()).flatMap(ids -> {
+      StringBuilder sql = new StringBuilder("INSERT INTO reviews (" + COLUMNS + ") VALUES ");
+      for (int i = 0; i < entities.size(); i++) {
+        sql.append(i == 0 ? "" : ", ")
+          .append("(:id").append(i).append(", 0, :productId").append(i).append(", :reviewId").append(i)
+          .append(", :author").append(i).append(", :subject").append(i).append(", :content").append(i).append(")");
+      }
+
+      GenericExecuteSpec insert = client.sql(sql.toString());
+      for (int i = 0; i < entities.size(); i++) {
+        ReviewEntity entity = entities.get(i);
+        insert = insert
+          .bind("id" + i, ids.get(i))
+          .bind("productId" + i, entity.getProductId())
+          .bind("reviewId" + i, entity.getReviewId());
+        insert = bindNullable(insert, "author" + i, entity.getAuthor());
+        insert = bindNullable(insert, "subject" + i, entity.getSubject());
+        insert = bindNullable(insert, "content" + i, entity.getContent());
+      }
+
+      return insert.fetch().rowsUpdated().doOnNext(rows -> {
+        for (int i = 0; i < entities.size(); i++) {
+          entities.get(i).setId(ids.get(i));
+          entities.get(i).setVersion(0);
+        }
+      });
+    }).then();
+  }
+
+  /**
+   * @return count ids, from the block allocated last as far as it goes and from a new block for the rest
+   */
+  private Mono<List<Integer>> nextIds(int count) {
+    List<Integer> ids = new ArrayList<>(count);
+    synchronized (this) {
+      while (ids.size() < count && nextId < idLimit) {
+        ids.add((int) nextId++);
+      }
+    }
+    if (ids.size() == count) {
+      return Mono.just(ids);
+    }
+
+    int missing = count - ids.size();
+    int blockSize = Math.max(ReviewEntity.ID_ALLOCATION_SIZE, missing);
+    return allocateIds(blockSize).map(first -> {
+      for (long id = first; id < first + missing; id++) {
+        ids.add((int) id);
+      }
+      // The rest of a block allocated concurrently is left unused, ids may have gaps but are never used twice
+      synchronized (this) {
+        nextId = first + missing;
+        idLimit = first + blockSize;
+      }
+      return ids;
+    });
+  }
+
+  /**
+   * @return the first id of a block of blockSize ids, the value of the sequence row that is moved past the block
+   */
+  private Mono<Long> allocateIds(int blockSize) {
+    return client.sql("SELECT next_val FROM hibernate_sequence FOR UPDATE")
+      .map((row, metadata) -> row.get("next_val", Long.class))
+      .one()
+      .flatMap(first -> client.sql("UPDATE hibernate_sequence SET next_val = :next")
+        .bind("next", first + blockSize)
+        .fetch().rowsUpdated()
+        .thenReturn(first))
+      .as(idTransactional::transactional);
+  }
+
+  private static GenericExecuteSpec bindNullable(GenericExecuteSpec spec, String name, String value) {
+    return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+  }
+
+  private static ReviewEntity toEntity(Row row) {
+    ReviewEntity entity = new ReviewEntity(
+      row.get("product_id", Integer.class),
+      row.get("review_id", Integer.class),
+      row.get("author", String.class),
+      row.get("subject", String.class),
+      row.get("content", String.class));
+    entity.setId(row.get("id", Integer.class));
+    entity.setVersion(row.get("version", Integer.class));
+    return entity;
+  }
+}
@@ -0,0 +1,55 @@
+package com.github.microservices.core.review.persistence;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toSet;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A batch of reviews split into the ones to create and the positions of the ones that already exist, or occur earlier
+ * in the batch, by their (productId, reviewId) key.
+ */
+class ReviewBatch {
+
+  private final List<ReviewEntity> created = new ArrayList<>();
+  private final List<Integer> duplicates = new ArrayList<>();
+
+  ReviewBatch(List<ReviewEntity> entities, Collection<ReviewEntity> existing) {
+    Set<List<Integer>> keys = existing.stream().map(ReviewBatch::key).collect(toSet());
+    for (int index = 0; index < entities.size(); index++) {
+      ReviewEntity entity = entities.get(index);
+      if (keys.add(key(entity))) {
+        created.add(entity);
+      } else {
+        duplicates.add(index);
+      }
+    }
+  }
+
+  /**
+   * @return the productIds of the batch, the existing reviews are looked up by these and the reviewIds
+   */
+  static Set<Integer> productIds(List<ReviewEntity> entities) {
+    return entities.stream().map(ReviewEntity::getProductId).collect(toSet());
+  }
+
+  static Set<Integer> reviewIds(List<ReviewEntity> entities) {
+    return entities.stream().map(ReviewEntity::getReviewId).collect(toSet());
+  }
+
+  List<ReviewEntity> getCreated() {
+    return created;
+  }
+
+  List<Integer> getDuplicates() {
+    return duplicates;
+  }
+
+  private static List<Integer> key(ReviewEntity entity) {
+    return asList(entity.getProductId(), entity.getReviewId());
+  }
+}
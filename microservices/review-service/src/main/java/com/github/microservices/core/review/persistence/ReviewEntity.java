@@ -1,12 +1,26 @@
 package com.github.microservices.core.review.persistence;
 
 import javax.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 @Entity
 @Table(name = "reviews", indexes = { @Index(name = "reviews_unique_idx", unique = true, columnList = "productId,reviewId") })
 public class ReviewEntity {
 
-  @Id @GeneratedValue
+  public static final int ID_ALLOCATION_SIZE = 1000;
+
+  /**
+   * Allocated from the hibernate_sequence table a block of ID_ALLOCATION_SIZE ids at a time, the value read is the first
+   * id of the block and the value written the first id of the next one. A batch of inserts needs no round trip per id
+   * and can be sent as one JDBC batch.
+   */
+  @Id
+  @GeneratedValue(generator = "review_id")
+  @GenericGenerator(name = "review_id", strategy = "enhanced-sequence", parameters = {
+    @Parameter(name = "sequence_name", value = "hibernate_sequence"),
+    @Parameter(name = "increment_size", value = "" + ID_ALLOCATION_SIZE),
+    @Parameter(name = "optimizer", value = "pooled-lo")})
   private int id;
 
   @Version
@@ -1,6 +1,8 @@
 package com.github.microservices.core.review.persistence;
 
+import java.util.Collection;
 import java.util.List;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -8,4 +10,13 @@ public interface ReviewRepository extends CrudRepository<ReviewEntity, Integer>
 
   @Transactional(readOnly = true)
   List<ReviewEntity> findByProductId(int productId);
+
+  @Transactional(readOnly = true)
+  List<ReviewEntity> findByProductIdAndReviewIdGreaterThan(int productId, int reviewId, Pageable pageable);
+
+  @Transactional(readOnly = true)
+  List<ReviewEntity> findByProductIdIn(Collection<Integer> productIds, Pageable pageable);
+
+  @Transactional(readOnly = true)
+  List<ReviewEntity> findByProductIdInAndReviewIdIn(Collection<Integer> productIds, Collection<Integer> reviewIds);
 }
@@ -0,0 +1,42 @@
+package com.github.microservices.core.review.persistence;
+
+import java.util.Collection;
+import java.util.List;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking access to the reviews table.
+ *
+ * JPA is used by default, the blocking calls run on a thread pool of their own. R2DBC is used with the r2dbc profile.
+ */
+public interface ReviewStore {
+
+  /**
+   * @return the created review, with its id and version
+   * @throws org.springframework.dao.DataIntegrityViolationException as error if the review already exists
+   */
+  Mono<ReviewEntity> create(ReviewEntity entity);
+
+  /**
+   * Creates the reviews that do not exist yet together, in one transaction.
+   *
+   * @return the positions in entities of the reviews that were not created since they already exist, or occur earlier
+   *   in entities, in ascending order
+   * @throws org.springframework.dao.DataIntegrityViolationException as error if reviews of the batch are created
+   *   concurrently, also when the batch is tried again
+   */
+  Flux<Integer> createAll(List<ReviewEntity> entities);
+
+  /**
+   * @return at most pageSize reviews of the product with a higher reviewId than after, in reviewId order
+   */
+  Flux<ReviewEntity> findPage(int productId, int after, int pageSize);
+
+  /**
+   * @return at most limit reviews of the products, in productId and reviewId order
+   */
+  Flux<ReviewEntity> findByProductIdIn(Collection<Integer> productIds, int limit);
+
+  Mono<Void> deleteByProductId(int productId);
+}
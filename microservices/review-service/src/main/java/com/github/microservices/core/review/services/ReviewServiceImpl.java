@@ -1,70 +1,148 @@
 package com.github.microservices.core.review.services;
 
+import static java.util.stream.Collectors.toList;
+
 import java.util.List;
 
-import com.github.microservices.core.review.persistence.ReviewRepository;
+import com.github.microservices.core.review.persistence.ReviewStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
+import com.github.api.core.BatchResult;
 import com.github.api.core.review.Review;
 import com.github.api.core.review.ReviewService;
 import com.github.api.exceptions.InvalidInputException;
 import com.github.microservices.core.review.persistence.ReviewEntity;
+import com.github.util.http.EntityTagBuilder;
 import com.github.util.http.ServiceUtil;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @RestController
 public class ReviewServiceImpl implements ReviewService {
 
   private static final Logger LOG = LoggerFactory.getLogger(ReviewServiceImpl.class);
 
-  private final ReviewRepository repository;
+  private final ReviewStore store;
 
   private final ReviewMapper mapper;
 
   private final ServiceUtil serviceUtil;
 
+  private final int maximumPageSize;
+
+  private final int maximumBatchSize;
+
+  private final int maximumProductIds;
+
   @Autowired
-  public ReviewServiceImpl(ReviewRepository repository, ReviewMapper mapper, ServiceUtil serviceUtil) {
-    this.repository = repository;
+  public ReviewServiceImpl(
+    ReviewStore store,
+    ReviewMapper mapper,
+    ServiceUtil serviceUtil,
+    @Value("${app.maximum-page-size}") int maximumPageSize,
+    @Value("${app.maximum-batch-size}") int maximumBatchSize,
+    @Value("${app.maximum-product-ids}") int maximumProductIds) {
+
+    this.store = store;
     this.mapper = mapper;
     this.serviceUtil = serviceUtil;
+    this.maximumPageSize = maximumPageSize;
+    this.maximumBatchSize = maximumBatchSize;
+    this.maximumProductIds = maximumProductIds;
   }
 
   @Override
-  public Review createReview(Review body) {
-    try {
-      ReviewEntity entity = mapper.apiToEntity(body);
-      ReviewEntity newEntity = repository.save(entity);
+  public Mono<Review> createReview(Review body) {
+    return store.create(mapper.apiToEntity(body))
+      .onErrorMap(DataIntegrityViolationException.class, ex -> new InvalidInputException(duplicateKey(body)))
+      .doOnNext(e -> LOG.debug("createReview: created a review entity: {}/{}", body.getProductId(), body.getReviewId()))
+      .map(mapper::entityToApi);
+  }
 
-      LOG.debug("createReview: created a review entity: {}/{}", body.getProductId(), body.getReviewId());
-      return mapper.entityToApi(newEntity);
+  @Override
+  public Mono<BatchResult> createReviews(List<Review> body) {
 
-    } catch (DataIntegrityViolationException dive) {
-      throw new InvalidInputException("Duplicate key, Product Id: " + body.getProductId() + ", Review Id:" + body.getReviewId());
+    if (body.size() > maximumBatchSize) {
+      throw InvalidInputException.withoutStackTrace("Invalid batch size: " + body.size() + ", expected at most " + maximumBatchSize);
     }
+
+    return store.createAll(body.stream().map(mapper::apiToEntity).collect(toList()))
+      .map(index -> new BatchResult.Failure(index, duplicateKey(body.get(index))))
+      .collectList()
+      .onErrorMap(DataIntegrityViolationException.class, ex -> new InvalidInputException(
+        "Duplicate key, a review of the batch was created concurrently"))
+      .map(failures -> new BatchResult(body.size() - failures.size(), failures))
+      .doOnNext(result -> LOG.debug("createReviews: created {} of {} review entities", result.getCreated(), body.size()));
   }
 
   @Override
-  public List<Review> getReviews(int productId) {
+  public Mono<ResponseEntity<List<Review>>> getReviews(int productId, Integer limit, Integer after) {
 
     if (productId < 1) {
-      throw new InvalidInputException("Invalid productId: " + productId);
+      throw InvalidInputException.withoutStackTrace("Invalid productId: " + productId);
+    }
+
+    int pageSize = limit == null ? maximumPageSize : limit;
+    if (pageSize < 1 || pageSize > maximumPageSize) {
+      throw InvalidInputException.withoutStackTrace("Invalid limit: " + pageSize + ", expected 1 to " + maximumPageSize);
     }
-    
-    List<ReviewEntity> entityList = repository.findByProductId(productId);
-    List<Review> list = mapper.entityListToApiList(entityList);
-    list.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
 
-    LOG.debug("getReviews: response size: {}", list.size());
+    // A range scan of the unique (productId, reviewId) index, as cheap for the last page as for the first
+    return store.findPage(productId, after == null ? Integer.MIN_VALUE : after, pageSize)
+      .collectList()
+      .map(entityList -> {
+        List<Review> list = mapper.entityListToApiList(entityList);
+        list.forEach(e -> e.setServiceAddress(serviceUtil.getServiceAddress()));
 
-    return list;
+        LOG.debug("getReviews: response size: {}", list.size());
+
+        EntityTagBuilder tag = new EntityTagBuilder();
+        entityList.forEach(e -> tag.add(e.getId(), e.getVersion()));
+        return ResponseEntity.ok().eTag(tag.build()).body(list);
+      });
+  }
+
+  @Override
+  public Flux<Review> getReviews(List<Integer> productIds) {
+
+    if (productIds.isEmpty() || productIds.size() > maximumProductIds) {
+      throw InvalidInputException.withoutStackTrace("Invalid number of productIds: " + productIds.size() + ", expected 1 to " + maximumProductIds);
+    }
+    productIds.forEach(productId -> {
+      if (productId < 1) {
+        throw InvalidInputException.withoutStackTrace("Invalid productId: " + productId);
+      }
+    });
+
+    // One more than the maximum page size is read to tell whether the products have too many reviews
+    return store.findByProductIdIn(productIds, maximumPageSize + 1)
+      .index()
+      .map(indexed -> {
+        if (indexed.getT1() == maximumPageSize) {
+          throw InvalidInputException.withoutStackTrace("Invalid productIds: more than " + maximumPageSize
+            + " reviews, expected at most " + maximumPageSize + ", ask for fewer productIds");
+        }
+        return indexed.getT2();
+      })
+      .map(e -> {
+        Review review = mapper.entityToApi(e);
+        review.setServiceAddress(serviceUtil.getServiceAddress());
+        return review;
+      });
   }
 
   @Override
-  public void deleteReviews(int productId) {
+  public Mono<Void> deleteReviews(int productId) {
     LOG.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
-    repository.deleteAll(repository.findByProductId(productId));
+    return store.deleteByProductId(productId);
+  }
+
+  private static String duplicateKey(Review review) {
+    return "Duplicate key, Product Id: " + review.getProductId() + ", Review Id:" + review.getReviewId();
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,58 @@
+package com.github.microservices.core.review;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.microservices.core.review.persistence.JpaReviewStore;
+import com.github.microservices.core.review.persistence.ReviewEntity;
+import com.github.microservices.core.review.persistence.ReviewRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionOperations;
+import reactor.test.StepVerifier;
+
+class JpaReviewStoreTests {
+
+  private final ReviewRepository repository = mock(ReviewRepository.class);
+
+  @Test
+  void createAllTriesAConcurrentlyCreatedBatchOnce() {
+    when(repository.findByProductIdInAndReviewIdIn(anyCollection(), anyCollection())).thenReturn(emptyList());
+    when(repository.saveAll(any())).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+
+    StepVerifier.create(store("bounded-elastic").createAll(asList(new ReviewEntity(1, 1, "a", "s", "c"))))
+      .expectError(DataIntegrityViolationException.class)
+      .verify();
+
+    verify(repository, times(2)).saveAll(any());
+  }
+
+  @Test
+  @EnabledForJreRange(max = JRE.JAVA_17)
+  void virtualThreadsNeedJava21() {
+    IllegalStateException ex = assertThrows(IllegalStateException.class, () -> store("virtual-threads"));
+
+    assertEquals("Invalid app.jdbc.scheduler: virtual-threads, expected Java 21 or later, running on Java "
+      + System.getProperty("java.version"), ex.getMessage());
+  }
+
+  @Test
+  void unknownSchedulerIsRejected() {
+    IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> store("parallel"));
+
+    assertEquals("Invalid app.jdbc.scheduler: parallel, expected bounded-elastic or virtual-threads", ex.getMessage());
+  }
+
+  private JpaReviewStore store(String scheduler) {
+    return new JpaReviewStore(repository, TransactionOperations.withoutTransaction(), scheduler, 10, 100);
+  }
+}
@@ -8,6 +8,7 @@ public abstract class MySqlTestBase {
   private static MySQLContainer database = new MySQLContainer("mysql:5.7.32");
 
   static {
+    database.withUrlParam("rewriteBatchedStatements", "true");
     database.start();
   }
 
@@ -1,5 +1,6 @@
 package com.github.microservices.core.review;
 
+import static java.util.Arrays.asList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.*;
@@ -15,6 +16,9 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 import com.github.microservices.core.review.persistence.ReviewEntity;
 
@@ -75,6 +79,20 @@ class PersistenceTests extends MySqlTestBase {
     assertEqualsReview(savedEntity, entityList.get(0));
   }
 
+  @Test
+  void getByProductIds() {
+    repository.save(new ReviewEntity(2, 1, "a", "s", "c"));
+
+    List<ReviewEntity> entityList = repository.findByProductIdIn(asList(savedEntity.getProductId(), 2, 3), Pageable.unpaged());
+
+    assertThat(entityList, hasSize(2));
+
+    entityList = repository.findByProductIdIn(asList(2, 1), PageRequest.of(0, 1, Sort.by("productId", "reviewId")));
+
+    assertThat(entityList, hasSize(1));
+    assertEquals(savedEntity.getProductId(), entityList.get(0).getProductId());
+  }
+
   @Test
   void duplicateError() {
     assertThrows(DataIntegrityViolationException.class, () -> {
@@ -0,0 +1,136 @@
+package com.github.microservices.core.review;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.r2dbc.DataR2dbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.test.StepVerifier;
+import com.github.microservices.core.review.persistence.R2dbcReviewStore;
+import com.github.microservices.core.review.persistence.ReviewEntity;
+
+/**
+ * Runs the R2DBC store against H2 in MySQL mode, a stand-in for MySQL that needs no container.
+ */
+@DataR2dbcTest(properties = "spring.r2dbc.url=r2dbc:h2:mem:///review-db;MODE=MySQL;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("r2dbc")
+@Import(R2dbcReviewStore.class)
+class R2dbcPersistenceTests {
+
+  @Autowired
+  private R2dbcReviewStore store;
+
+  @Autowired
+  private DatabaseClient client;
+
+  private ReviewEntity savedEntity;
+
+  @BeforeEach
+  void setupDb() {
+    client.sql("DELETE FROM reviews").fetch().rowsUpdated().block();
+
+    savedEntity = store.create(new ReviewEntity(1, 2, "a", "s", "c")).block();
+  }
+
+  @Test
+  void create() {
+
+    ReviewEntity newEntity = store.create(new ReviewEntity(1, 3, "a", null, "c")).block();
+
+    assertNotEquals(savedEntity.getId(), newEntity.getId());
+    assertEquals(0, newEntity.getVersion());
+
+    List<ReviewEntity> entityList = store.findPage(1, 2, 10).collectList().block();
+    assertEquals(1, entityList.size());
+    assertEqualsReview(newEntity, entityList.get(0));
+  }
+
+  @Test
+  void createAll() {
+
+    List<ReviewEntity> entities = asList(
+      new ReviewEntity(1, 3, "a", "s", "c"),
+      new ReviewEntity(1, 2, "a", "s", "c"),
+      new ReviewEntity(2, 1, "a", null, "c"),
+      new ReviewEntity(1, 3, "a", "s", "c"));
+
+    StepVerifier.create(store.createAll(entities))
+      .expectNext(1, 3)
+      .verifyComplete();
+
+    assertNotEquals(entities.get(0).getId(), entities.get(2).getId());
+    assertNotEquals(savedEntity.getId(), entities.get(0).getId());
+
+    StepVerifier.create(store.findByProductIdIn(asList(1, 2), 10).map(ReviewEntity::getReviewId).sort())
+      .expectNext(1, 2, 3)
+      .verifyComplete();
+    assertEqualsReview(entities.get(2), store.findPage(2, 0, 10).blockFirst());
+  }
+
+  @Test
+  void getPage() {
+    store.create(new ReviewEntity(1, 4, "a", "s", "c")).block();
+    store.create(new ReviewEntity(1, 3, "a", "s", "c")).block();
+    store.create(new ReviewEntity(2, 1, "a", "s", "c")).block();
+
+    StepVerifier.create(store.findPage(1, Integer.MIN_VALUE, 2).map(ReviewEntity::getReviewId))
+      .expectNext(2, 3)
+      .verifyComplete();
+
+    StepVerifier.create(store.findPage(1, 3, 2).map(ReviewEntity::getReviewId))
+      .expectNext(4)
+      .verifyComplete();
+  }
+
+  @Test
+  void getByProductIds() {
+    store.create(new ReviewEntity(2, 1, "a", "s", "c")).block();
+    store.create(new ReviewEntity(3, 1, "a", "s", "c")).block();
+
+    StepVerifier.create(store.findByProductIdIn(asList(savedEntity.getProductId(), 2, 4), 10))
+      .expectNextCount(2)
+      .verifyComplete();
+
+    StepVerifier.create(store.findByProductIdIn(asList(3, 2, 1), 2).map(ReviewEntity::getProductId))
+      .expectNext(1, 2)
+      .verifyComplete();
+
+    StepVerifier.create(store.findByProductIdIn(Collections.emptyList(), 10)).verifyComplete();
+  }
+
+  @Test
+  void delete() {
+    store.create(new ReviewEntity(2, 1, "a", "s", "c")).block();
+
+    StepVerifier.create(store.deleteByProductId(savedEntity.getProductId())).verifyComplete();
+
+    StepVerifier.create(store.findByProductIdIn(asList(1, 2), 10).map(ReviewEntity::getProductId))
+      .expectNext(2)
+      .verifyComplete();
+  }
+
+  @Test
+  void duplicateError() {
+    StepVerifier.create(store.create(new ReviewEntity(1, 2, "a", "s", "c")))
+      .expectError(DataIntegrityViolationException.class)
+      .verify();
+  }
+
+  private void assertEqualsReview(ReviewEntity expectedEntity, ReviewEntity actualEntity) {
+    assertEquals(expectedEntity.getId(),        actualEntity.getId());
+    assertEquals(expectedEntity.getVersion(),   actualEntity.getVersion());
+    assertEquals(expectedEntity.getProductId(), actualEntity.getProductId());
+    assertEquals(expectedEntity.getReviewId(),  actualEntity.getReviewId());
+    assertEquals(expectedEntity.getAuthor(),    actualEntity.getAuthor());
+    assertEquals(expectedEntity.getSubject(),   actualEntity.getSubject());
+    assertEquals(expectedEntity.getContent(),   actualEntity.getContent());
+  }
+}
@@ -6,6 +6,9 @@ import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static reactor.core.publisher.Mono.just;
 
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -48,6 +51,89 @@ class ReviewServiceApplicationTests extends MySqlTestBase {
       .jsonPath("$[2].reviewId").isEqualTo(3);
   }
 
+  @Test
+  void getReviewsByProductIds() {
+
+    postAndVerifyReview(1, 1, OK);
+    postAndVerifyReview(1, 2, OK);
+    postAndVerifyReview(2, 1, OK);
+    postAndVerifyReview(3, 1, OK);
+
+    getAndVerifyReviewsByProductId("?productIds=1,2", OK)
+      .jsonPath("$.length()").isEqualTo(3);
+  }
+
+  @Test
+  void getReviewsTooManyProductIds() {
+
+    String productIds = IntStream.rangeClosed(1, 1001).mapToObj(String::valueOf).collect(Collectors.joining(","));
+
+    getAndVerifyReviewsByProductId("?productIds=" + productIds, UNPROCESSABLE_ENTITY)
+      .jsonPath("$.path").isEqualTo("/review")
+      .jsonPath("$.message").isEqualTo("Invalid number of productIds: 1001, expected 1 to 1000");
+  }
+
+  @Test
+  void getReviewsPageByPage() {
+
+    int productId = 1;
+
+    postAndVerifyReview(productId, 3, OK);
+    postAndVerifyReview(productId, 1, OK);
+    postAndVerifyReview(productId, 2, OK);
+
+    getAndVerifyReviewsByProductId("?productId=" + productId + "&limit=2", OK)
+      .jsonPath("$.length()").isEqualTo(2)
+      .jsonPath("$[0].reviewId").isEqualTo(1)
+      .jsonPath("$[1].reviewId").isEqualTo(2);
+
+    getAndVerifyReviewsByProductId("?productId=" + productId + "&limit=2&after=2", OK)
+      .jsonPath("$.length()").isEqualTo(1)
+      .jsonPath("$[0].reviewId").isEqualTo(3);
+  }
+
+  @Test
+  void getReviewsNotModifiedUntilChanged() {
+
+    int productId = 1;
+
+    postAndVerifyReview(productId, 1, OK);
+
+    String eTag = client.get()
+      .uri("/review?productId=" + productId)
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(OK)
+      .returnResult(Review.class)
+      .getResponseHeaders().getETag();
+
+    client.get()
+      .uri("/review?productId=" + productId)
+      .ifNoneMatch(eTag)
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(NOT_MODIFIED);
+
+    postAndVerifyReview(productId, 2, OK);
+
+    client.get()
+      .uri("/review?productId=" + productId)
+      .ifNoneMatch(eTag)
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(OK)
+      .expectBody()
+      .jsonPath("$.length()").isEqualTo(2);
+  }
+
+  @Test
+  void getReviewsInvalidLimit() {
+
+    getAndVerifyReviewsByProductId("?productId=1&limit=1001", UNPROCESSABLE_ENTITY)
+      .jsonPath("$.path").isEqualTo("/review")
+      .jsonPath("$.message").isEqualTo("Invalid limit: 1001, expected 1 to 1000");
+  }
+
   @Test
   void duplicateError() {
 
@@ -69,6 +155,42 @@ class ReviewServiceApplicationTests extends MySqlTestBase {
     assertEquals(1, repository.count());
   }
 
+  @Test
+  void createReviewsInBatch() {
+
+    int productId = 1;
+
+    postAndVerifyReview(productId, 2, OK);
+
+    List<Review> batch = IntStream.of(1, 2, 3, 1)
+      .mapToObj(reviewId -> review(productId, reviewId))
+      .collect(Collectors.toList());
+
+    postAndVerifyReviews(batch, OK)
+      .jsonPath("$.created").isEqualTo(2)
+      .jsonPath("$.failures.length()").isEqualTo(2)
+      .jsonPath("$.failures[0].index").isEqualTo(1)
+      .jsonPath("$.failures[0].message").isEqualTo("Duplicate key, Product Id: 1, Review Id:2")
+      .jsonPath("$.failures[1].index").isEqualTo(3)
+      .jsonPath("$.failures[1].message").isEqualTo("Duplicate key, Product Id: 1, Review Id:1");
+
+    assertEquals(3, repository.findByProductId(productId).size());
+  }
+
+  @Test
+  void createReviewsInvalidBatchSize() {
+
+    List<Review> batch = IntStream.rangeClosed(1, 1001)
+      .mapToObj(reviewId -> review(1, reviewId))
+      .collect(Collectors.toList());
+
+    postAndVerifyReviews(batch, UNPROCESSABLE_ENTITY)
+      .jsonPath("$.path").isEqualTo("/review/batch")
+      .jsonPath("$.message").isEqualTo("Invalid batch size: 1001, expected at most 1000");
+
+    assertEquals(0, repository.count());
+  }
+
   @Test
   void deleteReviews() {
 
@@ -132,10 +254,9 @@ class ReviewServiceApplicationTests extends MySqlTestBase {
   }
 
   private WebTestClient.BodyContentSpec postAndVerifyReview(int productId, int reviewId, HttpStatus expectedStatus) {
-    Review review = new Review(productId, reviewId, "Author " + reviewId, "Subject " + reviewId, "Content " + reviewId, "SA");
     return client.post()
       .uri("/review")
-      .body(just(review), Review.class)
+      .body(just(review(productId, reviewId)), Review.class)
       .accept(APPLICATION_JSON)
       .exchange()
       .expectStatus().isEqualTo(expectedStatus)
@@ -143,6 +264,21 @@ class ReviewServiceApplicationTests extends MySqlTestBase {
       .expectBody();
   }
 
+  private WebTestClient.BodyContentSpec postAndVerifyReviews(List<Review> reviews, HttpStatus expectedStatus) {
+    return client.post()
+      .uri("/review/batch")
+      .bodyValue(reviews)
+      .accept(APPLICATION_JSON)
+      .exchange()
+      .expectStatus().isEqualTo(expectedStatus)
+      .expectHeader().contentType(APPLICATION_JSON)
+      .expectBody();
+  }
+
+  private Review review(int productId, int reviewId) {
+    return new Review(productId, reviewId, "Author " + reviewId, "Subject " + reviewId, "Content " + reviewId, "SA");
+  }
+
   private WebTestClient.BodyContentSpec deleteAndVerifyReviewsByProductId(int productId, HttpStatus expectedStatus) {
     return client.delete()
       .uri("/review?productId=" + productId)
@@ -0,0 +1,59 @@
+package com.github.microservices.core.review;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.github.microservices.core.review.persistence.ReviewEntity;
+import com.github.microservices.core.review.persistence.ReviewStore;
+import com.github.microservices.core.review.services.ReviewMapper;
+import com.github.microservices.core.review.services.ReviewServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.springframework.dao.DataIntegrityViolationException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import com.github.api.core.review.Review;
+import com.github.api.exceptions.InvalidInputException;
+import com.github.util.http.ServiceUtil;
+
+class ReviewServiceTests {
+
+  private final ReviewStore store = mock(ReviewStore.class);
+
+  private final ReviewServiceImpl service = new ReviewServiceImpl(
+    store, Mappers.getMapper(ReviewMapper.class), mock(ServiceUtil.class), 2, 10, 10);
+
+  @Test
+  void getReviewsOfTooManyProducts() {
+    when(store.findByProductIdIn(anyCollection(), anyInt())).thenReturn(Flux.just(
+      new ReviewEntity(1, 1, "a", "s", "c"),
+      new ReviewEntity(1, 2, "a", "s", "c"),
+      new ReviewEntity(2, 1, "a", "s", "c")));
+
+    StepVerifier.create(service.getReviews(asList(1, 2)))
+      .expectNextCount(2)
+      .expectErrorSatisfies(error -> {
+        assertTrue(error instanceof InvalidInputException);
+        assertEquals("Invalid productIds: more than 2 reviews, expected at most 2, ask for fewer productIds", error.getMessage());
+      })
+      .verify();
+  }
+
+  @Test
+  void createReviewsCreatedConcurrently() {
+    // The store already tried the batch again
+    when(store.createAll(anyList())).thenReturn(Flux.error(new DataIntegrityViolationException("Duplicate entry")));
+
+    StepVerifier.create(service.createReviews(asList(new Review(1, 1, "a", "s", "c", "SA"))))
+      .expectErrorSatisfies(error -> {
+        assertTrue(error instanceof InvalidInputException);
+        assertEquals("Duplicate key, a review of the batch was created concurrently", error.getMessage());
+      })
+      .verify();
+  }
+}
@@ -164,6 +164,12 @@ assertEqual $PROD_ID_NO_REVS $(echo $RESPONSE | jq .productId)
 assertEqual 3 $(echo $RESPONSE | jq ".recommendations | length")
 assertEqual 0 $(echo $RESPONSE | jq ".reviews | length")
 
+# Verify that a batch lookup returns the products found, in the requested order
+assertCurl 200 "curl \"http://$HOST:$PORT/product-composite?ids=$PROD_ID_NO_RECS,$PROD_ID_NOT_FOUND,$PROD_ID_REVS_RECS\" -s"
+assertEqual 2 $(echo $RESPONSE | jq "length")
+assertEqual $PROD_ID_NO_RECS $(echo $RESPONSE | jq ".[0].productId")
+assertEqual 3 $(echo $RESPONSE | jq ".[1].recommendations | length")
+
 # Verify that a 422 (Unprocessable Entity) error is returned for a productId that is out of range (-1)
 assertCurl 422 "curl http://$HOST:$PORT/product-composite/-1 -s"
 assertEqual "\"Invalid productId: -1\"" "$(echo $RESPONSE | jq .message)"
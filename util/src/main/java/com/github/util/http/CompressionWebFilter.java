@@ -0,0 +1,281 @@
+package com.github.util.http;
+
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_LENGTH;
+import static org.springframework.http.HttpHeaders.VARY;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Compresses response bodies with gzip when the client accepts it.
+ *
+ * Only the configured media types are compressed. Bodies of a known length below the minimum size are sent as they
+ * are, the CPU spent on compressing them is not worth the bytes saved. Bodies of an unknown length are compressed
+ * whatever their size, telling it would mean holding the body back. Encoded single values, e.g. a JSON array of a
+ * collected Flux, have a known length. Streamed responses, that are flushed element by element, are not compressed
+ * either. The bytes before and after compression and the time spent compressing are recorded as metrics.
+ *
+ * The compressed bytes are written into buffers of the response's buffer factory, pooled when the server pools them.
+ */
+@Component
+public class CompressionWebFilter implements WebFilter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CompressionWebFilter.class);
+
+  private final boolean enabled;
+  private final long minimumSize;
+  private final int level;
+  private final List<MediaType> mediaTypes;
+
+  private final Counter compressedResponses;
+  private final Counter skippedResponses;
+  private final Counter uncompressedBytes;
+  private final Counter compressedBytes;
+  private final DistributionSummary ratio;
+  private final Timer compressionTime;
+
+  @Autowired
+  public CompressionWebFilter(
+    ObjectProvider<MeterRegistry> registries,
+    @Value("${app.compression.enabled}") boolean enabled,
+    @Value("${app.compression.minimum-size}") DataSize minimumSize,
+    @Value("${app.compression.level}") int level,
+    @Value("${app.compression.mime-types}") String mimeTypes) {
+
+    this.enabled = enabled;
+    this.minimumSize = minimumSize.toBytes();
+    this.level = level;
+    this.mediaTypes = MediaType.parseMediaTypes(mimeTypes);
+
+    // Test slices, e.g. of the persistence, scan the filter without configuring metrics
+    MeterRegistry registry = registries.getIfAvailable(() -> Metrics.globalRegistry);
+
+    compressedResponses = registry.counter("http.server.compression.responses", "result", "compressed");
+    skippedResponses = registry.counter("http.server.compression.responses", "result", "skipped");
+    uncompressedBytes = registry.counter("http.server.compression.bytes", "stage", "uncompressed");
+    compressedBytes = registry.counter("http.server.compression.bytes", "stage", "compressed");
+    ratio = DistributionSummary.builder("http.server.compression.ratio")
+      .description("Compressed size of a response body divided by its uncompressed size")
+      .register(registry);
+    compressionTime = Timer.builder("http.server.compression.time")
+      .description("Time spent compressing a response body")
+      .register(registry);
+
+    LOG.info("Compressing responses: {}, minimum size: {} bytes, level: {}, media types: {}",
+      enabled, this.minimumSize, level, mediaTypes);
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    if (!enabled || exchange.getRequest().getMethod() == HttpMethod.HEAD) {
+      return chain.filter(exchange);
+    }
+    boolean accepted = acceptsGzip(exchange.getRequest().getHeaders());
+    return chain.filter(exchange.mutate().response(new CompressingResponse(exchange.getResponse(), accepted)).build());
+  }
+
+  static boolean acceptsGzip(HttpHeaders headers) {
+    for (String value : headers.getOrEmpty(ACCEPT_ENCODING)) {
+      for (String coding : value.split(",")) {
+        String[] parts = coding.split(";");
+        String name = parts[0].trim();
+        if ("gzip".equalsIgnoreCase(name) || "*".equals(name)) {
+          return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+        }
+      }
+    }
+    return false;
+  }
+
+  private class CompressingResponse extends ServerHttpResponseDecorator {
+
+    private final boolean accepted;
+
+    CompressingResponse(ServerHttpResponse delegate, boolean accepted) {
+      super(delegate);
+      this.accepted = accepted;
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+      HttpHeaders headers = getHeaders();
+      MediaType contentType = headers.getContentType();
+      if (contentType == null || headers.containsKey(CONTENT_ENCODING)
+        || mediaTypes.stream().noneMatch(mediaType -> mediaType.includes(contentType))) {
+        return super.writeWith(body);
+      }
+
+      headers.add(VARY, ACCEPT_ENCODING);
+      long contentLength = headers.getContentLength();
+      if (!accepted || (contentLength >= 0 && contentLength < minimumSize)) {
+        skippedResponses.increment();
+        return super.writeWith(body);
+      }
+
+      headers.remove(CONTENT_LENGTH);
+      headers.set(CONTENT_ENCODING, "gzip");
+      return super.writeWith(Flux.using(
+        () -> new GzipStream(bufferFactory()),
+        gzip -> Flux.from(body)
+          .<DataBuffer>handle((buffer, sink) -> {
+            // The deflater holds back small writes, a buffer that produced no output yet is not written
+            DataBuffer compressed = gzip.compress(buffer);
+            if (compressed != null) {
+              sink.next(compressed);
+            }
+          })
+          .concatWith(Mono.fromCallable(gzip::finish)),
+        GzipStream::close));
+    }
+  }
+
+  /**
+   * Compresses the buffers of one response body, as they are written.
+   */
+  private class GzipStream {
+
+    private final BufferOutputStream compressed;
+    private final GZIPOutputStream gzip;
+    private final byte[] chunk = new byte[8192];
+
+    private long bytesIn;
+    private long bytesOut;
+    private long nanos;
+
+    GzipStream(DataBufferFactory bufferFactory) throws IOException {
+      this.compressed = new BufferOutputStream(bufferFactory);
+      this.gzip = new GZIPOutputStream(compressed, chunk.length) {
+        {
+          def.setLevel(level);
+        }
+      };
+    }
+
+    /**
+     * @return the compressed bytes written so far, null if there are none
+     */
+    DataBuffer compress(DataBuffer buffer) {
+      long start = System.nanoTime();
+      try {
+        for (int n; (n = Math.min(buffer.readableByteCount(), chunk.length)) > 0; ) {
+          buffer.read(chunk, 0, n);
+          gzip.write(chunk, 0, n);
+          bytesIn += n;
+        }
+        return drain();
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      } finally {
+        DataBufferUtils.release(buffer);
+        nanos += System.nanoTime() - start;
+      }
+    }
+
+    DataBuffer finish() throws IOException {
+      long start = System.nanoTime();
+      gzip.finish();
+      DataBuffer last = drain();
+      nanos += System.nanoTime() - start;
+
+      compressedResponses.increment();
+      uncompressedBytes.increment(bytesIn);
+      compressedBytes.increment(bytesOut);
+      compressionTime.record(nanos, TimeUnit.NANOSECONDS);
+      if (bytesIn > 0) {
+        ratio.record((double) bytesOut / bytesIn);
+      }
+      return last;
+    }
+
+    void close() {
+      try {
+        gzip.close();
+      } catch (IOException ex) {
+        LOG.debug("Failed to close a gzip stream: {}", ex.toString());
+      }
+      // A body that was cancelled or failed leaves its last compressed bytes unwritten
+      DataBuffer unwritten = compressed.take();
+      if (unwritten != null) {
+        DataBufferUtils.release(unwritten);
+      }
+    }
+
+    private DataBuffer drain() {
+      DataBuffer buffer = compressed.take();
+      if (buffer != null) {
+        bytesOut += buffer.readableByteCount();
+      }
+      return buffer;
+    }
+  }
+
+  /**
+   * Writes into a buffer of the factory, allocated on the first write after the previous buffer was taken.
+   */
+  private static class BufferOutputStream extends OutputStream {
+
+    private final DataBufferFactory bufferFactory;
+    private DataBuffer buffer;
+
+    BufferOutputStream(DataBufferFactory bufferFactory) {
+      this.bufferFactory = bufferFactory;
+    }
+
+    @Override
+    public void write(int b) {
+      buffer().write((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      if (length > 0) {
+        buffer().write(bytes, offset, length);
+      }
+    }
+
+    DataBuffer take() {
+      DataBuffer taken = buffer;
+      buffer = null;
+      return taken;
+    }
+
+    private DataBuffer buffer() {
+      if (buffer == null) {
+        buffer = bufferFactory.allocateBuffer();
+      }
+      return buffer;
+    }
+  }
+}
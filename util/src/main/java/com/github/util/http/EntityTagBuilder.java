@@ -0,0 +1,51 @@
+package com.github.util.http;
+
+/**
+ * Builds a weak entity tag from the ids and versions of the entities a response is made of.
+ *
+ * The values are hashed in the order they are added (64-bit FNV-1a), an entity that is added, removed, recreated or
+ * updated changes the tag. The tag is weak, the JSON and Smile representations of the same entities share it.
+ */
+public class EntityTagBuilder {
+
+  private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  private long hash = FNV_OFFSET_BASIS;
+
+  public EntityTagBuilder add(String value) {
+    if (value == null) {
+      return add(-1);
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      mix(c >>> 8);
+      mix(c);
+    }
+    return add(value.length());
+  }
+
+  public EntityTagBuilder add(Object id, Integer version) {
+    return add(String.valueOf(id)).add(version == null ? -1 : version);
+  }
+
+  public EntityTagBuilder add(int value) {
+    mix(value >>> 24);
+    mix(value >>> 16);
+    mix(value >>> 8);
+    mix(value);
+    return this;
+  }
+
+  /**
+   * @return the tag, formatted as the value of an ETag header
+   */
+  public String build() {
+    return "W/\"" + Long.toHexString(hash) + "\"";
+  }
+
+  private void mix(int value) {
+    hash ^= value & 0xff;
+    hash *= FNV_PRIME;
+  }
+}
@@ -2,6 +2,7 @@ package com.github.util.http;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 import static org.springframework.http.HttpStatus.UNPROCESSABLE_ENTITY;
 
 import org.slf4j.Logger;
@@ -15,6 +16,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import com.github.api.exceptions.BadRequestException;
 import com.github.api.exceptions.InvalidInputException;
 import com.github.api.exceptions.NotFoundException;
+import com.github.api.exceptions.ServiceUnavailableException;
 
 @RestControllerAdvice
 class GlobalControllerExceptionHandler {
@@ -45,6 +47,14 @@ class GlobalControllerExceptionHandler {
     return createHttpErrorInfo(UNPROCESSABLE_ENTITY, request, ex);
   }
 
+  @ResponseStatus(SERVICE_UNAVAILABLE)
+  @ExceptionHandler(ServiceUnavailableException.class)
+  public @ResponseBody HttpErrorInfo handleServiceUnavailableException(
+    ServerHttpRequest request, ServiceUnavailableException ex) {
+
+    return createHttpErrorInfo(SERVICE_UNAVAILABLE, request, ex);
+  }
+
   private HttpErrorInfo createHttpErrorInfo(
     HttpStatus httpStatus, ServerHttpRequest request, Exception ex) {
 
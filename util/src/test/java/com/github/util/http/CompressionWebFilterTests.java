@@ -0,0 +1,168 @@
+package com.github.util.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.nCopies;
+import static java.util.Collections.singletonMap;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.VARY;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+
+class CompressionWebFilterTests {
+
+  private static final String BODY = "[" + String.join(",", nCopies(200, "{\"productId\":1}")) + "]";
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private final CompressionWebFilter filter = new CompressionWebFilter(
+    new StaticListableBeanFactory(singletonMap("registry", registry)).getBeanProvider(MeterRegistry.class),
+    true, DataSize.ofKilobytes(2), 6, "application/json,application/x-jackson-smile");
+
+  @Test
+  void acceptsGzip() {
+    assertTrue(CompressionWebFilter.acceptsGzip(acceptEncoding("gzip")));
+    assertTrue(CompressionWebFilter.acceptsGzip(acceptEncoding("deflate, GZIP;q=0.5")));
+    assertTrue(CompressionWebFilter.acceptsGzip(acceptEncoding("br, *;q=0.3")));
+    assertTrue(CompressionWebFilter.acceptsGzip(acceptEncoding("gzip;q=0.01")));
+
+    assertFalse(CompressionWebFilter.acceptsGzip(acceptEncoding("gzip;q=0")));
+    assertFalse(CompressionWebFilter.acceptsGzip(acceptEncoding("gzip; q=0.000")));
+    assertFalse(CompressionWebFilter.acceptsGzip(acceptEncoding("*;q=0")));
+    assertFalse(CompressionWebFilter.acceptsGzip(acceptEncoding("br, deflate")));
+    assertFalse(CompressionWebFilter.acceptsGzip(new HttpHeaders()));
+  }
+
+  @Test
+  void compressesLargeBodies() throws IOException {
+    MockServerWebExchange exchange = exchange("gzip");
+
+    write(exchange, MediaType.APPLICATION_JSON, -1);
+
+    HttpHeaders headers = exchange.getResponse().getHeaders();
+    assertEquals("gzip", headers.getFirst(CONTENT_ENCODING));
+    assertEquals(ACCEPT_ENCODING, headers.getFirst(VARY));
+    assertEquals(BODY, gunzip(body(exchange)));
+    assertEquals(1.0, registry.counter("http.server.compression.responses", "result", "compressed").count());
+    assertEquals(BODY.length(), registry.counter("http.server.compression.bytes", "stage", "uncompressed").count());
+  }
+
+  @Test
+  void writesNoEmptyBuffers() throws IOException {
+    MockServerWebExchange exchange = exchange("gzip");
+
+    // Small buffers are held back by the deflater until it has enough input
+    filter.filter(exchange, filtered -> {
+      filtered.getResponse().getHeaders().setContentType(MediaType.APPLICATION_JSON);
+      return filtered.getResponse().writeWith(Flux.range(0, BODY.length() / 10 + 1)
+        .map(i -> BODY.substring(i * 10, Math.min(BODY.length(), i * 10 + 10)))
+        .map(part -> DefaultDataBufferFactory.sharedInstance.wrap(part.getBytes(UTF_8))));
+    }).block();
+
+    List<DataBuffer> buffers = exchange.getResponse().getBody().collectList().block();
+    assertTrue(buffers.stream().allMatch(buffer -> buffer.readableByteCount() > 0));
+    assertTrue(buffers.size() < BODY.length() / 10);
+    assertEquals(BODY, gunzip(body(exchange)));
+  }
+
+  @Test
+  void skipsBodiesBelowMinimumSize() {
+    MockServerWebExchange exchange = exchange("gzip");
+
+    write(exchange, MediaType.APPLICATION_JSON, 100);
+
+    HttpHeaders headers = exchange.getResponse().getHeaders();
+    assertNull(headers.getFirst(CONTENT_ENCODING));
+    assertEquals(ACCEPT_ENCODING, headers.getFirst(VARY));
+    assertEquals(BODY, new String(body(exchange), UTF_8));
+    assertEquals(1.0, registry.counter("http.server.compression.responses", "result", "skipped").count());
+  }
+
+  @Test
+  void skipsClientsNotAcceptingGzip() {
+    MockServerWebExchange exchange = exchange("gzip;q=0");
+
+    write(exchange, MediaType.APPLICATION_JSON, -1);
+
+    assertNull(exchange.getResponse().getHeaders().getFirst(CONTENT_ENCODING));
+    assertEquals(ACCEPT_ENCODING, exchange.getResponse().getHeaders().getFirst(VARY));
+    assertEquals(BODY, new String(body(exchange), UTF_8));
+  }
+
+  @Test
+  void passesStreamsThrough() {
+    for (MediaType streamType : new MediaType[] {MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM}) {
+      MockServerWebExchange exchange = exchange("gzip");
+
+      write(exchange, streamType, -1);
+
+      HttpHeaders headers = exchange.getResponse().getHeaders();
+      assertNull(headers.getFirst(CONTENT_ENCODING), streamType.toString());
+      assertNull(headers.getFirst(VARY), streamType.toString());
+      assertEquals(BODY, new String(body(exchange), UTF_8));
+    }
+    assertEquals(0.0, registry.counter("http.server.compression.responses", "result", "compressed").count());
+  }
+
+  private void write(MockServerWebExchange exchange, MediaType contentType, long contentLength) {
+    filter.filter(exchange, filtered -> {
+      HttpHeaders headers = filtered.getResponse().getHeaders();
+      headers.setContentType(contentType);
+      if (contentLength >= 0) {
+        headers.setContentLength(contentLength);
+      }
+      // Written in two buffers, as a body is written element by element
+      int half = BODY.length() / 2;
+      return filtered.getResponse().writeWith(Flux.just(BODY.substring(0, half), BODY.substring(half))
+        .map(part -> DefaultDataBufferFactory.sharedInstance.wrap(part.getBytes(UTF_8))));
+    }).block();
+  }
+
+  private static MockServerWebExchange exchange(String acceptEncoding) {
+    return MockServerWebExchange.from(MockServerHttpRequest.get("/review").header(ACCEPT_ENCODING, acceptEncoding));
+  }
+
+  private static HttpHeaders acceptEncoding(String value) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.add(ACCEPT_ENCODING, value);
+    return headers;
+  }
+
+  private static byte[] body(MockServerWebExchange exchange) {
+    DataBuffer joined = DataBufferUtils.join(exchange.getResponse().getBody()).block();
+    byte[] bytes = new byte[joined.readableByteCount()];
+    joined.read(bytes);
+    DataBufferUtils.release(joined);
+    return bytes;
+  }
+
+  private static String gunzip(byte[] compressed) throws IOException {
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      for (int n; (n = in.read(buffer)) > 0; ) {
+        out.write(buffer, 0, n);
+      }
+      return new String(out.toByteArray(), UTF_8);
+    }
+  }
+}